@@ -0,0 +1,184 @@
+package arjdbc.jdbc;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jruby.Ruby;
+import org.jruby.RubyClass;
+import org.jruby.RubyHash;
+import org.jruby.runtime.Block;
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import arjdbc.h2.H2RubyJdbcConnection;
+import arjdbc.sqlite3.SQLite3RubyJdbcConnection;
+
+/**
+ * Shared benchmark state: a JRuby runtime with just enough of ActiveRecord
+ * stubbed out, an embedded database with a populated <code>bench_records</code>
+ * table and the adapter's (Java) JdbcConnection instance connected to it.
+ *
+ * NOTE: benchmarks live in the arjdbc.jdbc package so they can reach the
+ * protected result mapping and bind methods directly.
+ */
+@State(Scope.Thread)
+public class BenchmarkDatabase {
+
+    static final String TABLE = "bench_records";
+
+    static final String[] COLUMNS = {
+        "a_integer", "a_bigint", "a_double", "a_decimal", "a_string",
+        "a_text", "a_date", "a_timestamp", "a_boolean", "a_binary"
+    };
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @Param({ "h2", "hsqldb", "sqlite" })
+    public String db;
+
+    @Param({ "1000" })
+    public int rows;
+
+    @Param({ "false" }) // columnar_results: true
+    public boolean columnar;
+
+    @Param({ "false" }) // string_dedup_columns: [ 'a_string' ]
+    public boolean dedup;
+
+    Ruby runtime;
+    ThreadContext context;
+    RubyJdbcConnection connection;
+    Connection jdbcConnection;
+
+    private Path sqliteFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        runtime = Ruby.newInstance();
+        context = runtime.getCurrentContext();
+        loadStubs(runtime);
+
+        final RubyClass jdbcConnectionClass = RubyJdbcConnection.createJdbcConnectionClass(runtime);
+        final RubyClass connectionClass;
+        final String url, driver;
+        final int id = SEQ.incrementAndGet();
+        switch (db) {
+            case "h2":
+                connectionClass = H2RubyJdbcConnection.createH2JdbcConnectionClass(context, jdbcConnectionClass);
+                url = "jdbc:h2:mem:bench" + id; driver = "org.h2.Driver";
+                break;
+            case "hsqldb":
+                connectionClass = jdbcConnectionClass; // no HSQLDB specific connection
+                url = "jdbc:hsqldb:mem:bench" + id; driver = "org.hsqldb.jdbc.JDBCDriver";
+                break;
+            case "sqlite":
+                connectionClass = SQLite3RubyJdbcConnection.createSQLite3JdbcConnectionClass(context, jdbcConnectionClass);
+                sqliteFile = Files.createTempFile("arjdbc-bench", ".sqlite3");
+                url = "jdbc:sqlite:" + sqliteFile; driver = "org.sqlite.JDBC";
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported db: " + db);
+        }
+
+        final RubyHash config = RubyHash.newHash(runtime);
+        config.fastASet(runtime.newSymbol("url"), runtime.newString(url));
+        config.fastASet(runtime.newSymbol("driver"), runtime.newString(driver));
+        config.fastASet(runtime.newSymbol("configure_connection"), context.fals);
+        config.fastASet(runtime.newSymbol("columnar_results"), runtime.newBoolean(columnar));
+        if (dedup) {
+            config.fastASet(runtime.newSymbol("string_dedup_columns"), runtime.newArray(runtime.newString("a_string")));
+        }
+        final IRubyObject adapter = runtime.getObject().newInstance(context, Block.NULL_BLOCK);
+
+        connection = (RubyJdbcConnection) connectionClass.newInstance(context, config, adapter, Block.NULL_BLOCK);
+        jdbcConnection = connection.getConnection(true);
+
+        createTable();
+        populateTable();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (connection != null) connection.disconnect(context);
+        if (runtime != null) runtime.tearDown(false);
+        if (sqliteFile != null) Files.deleteIfExists(sqliteFile);
+    }
+
+    String selectAll() {
+        return "SELECT * FROM " + TABLE;
+    }
+
+    String select(final String column) {
+        return "SELECT " + column + " FROM " + TABLE;
+    }
+
+    private static void loadStubs(final Ruby runtime) throws Exception {
+        try (InputStream stubs = BenchmarkDatabase.class.getResourceAsStream("bench_stubs.rb")) {
+            final Reader reader = new InputStreamReader(stubs, StandardCharsets.UTF_8);
+            final StringBuilder script = new StringBuilder();
+            final char[] buf = new char[1024];
+            for (int len = reader.read(buf); len != -1; len = reader.read(buf)) script.append(buf, 0, len);
+            runtime.evalScriptlet(script.toString());
+        }
+    }
+
+    private void createTable() throws SQLException {
+        final boolean sqlite = "sqlite".equals(db);
+        final String text = sqlite ? "TEXT" : "CLOB", binary = sqlite ? "BLOB" : "VARBINARY(1024)";
+        try (Statement statement = jdbcConnection.createStatement()) {
+            statement.execute("CREATE TABLE " + TABLE + " (" +
+                "id INTEGER PRIMARY KEY, " +
+                "a_integer INTEGER, a_bigint BIGINT, a_double DOUBLE, a_decimal DECIMAL(15,5), " +
+                "a_string VARCHAR(255), a_text " + text + ", a_date DATE, a_timestamp TIMESTAMP, " +
+                "a_boolean BOOLEAN, a_binary " + binary + ")");
+        }
+    }
+
+    private void populateTable() throws SQLException {
+        final boolean autoCommit = jdbcConnection.getAutoCommit();
+        jdbcConnection.setAutoCommit(false);
+        final String sql = "INSERT INTO " + TABLE + " (id, " + String.join(", ", COLUMNS) +
+                ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement insert = jdbcConnection.prepareStatement(sql)) {
+            final long now = System.currentTimeMillis();
+            final byte[] blob = new byte[256];
+            for (int i = 0; i < rows; i++) {
+                insert.setInt(1, i + 1);
+                insert.setInt(2, i * 7);
+                insert.setLong(3, Integer.MAX_VALUE + (long) i);
+                insert.setDouble(4, i * 1.25);
+                insert.setBigDecimal(5, BigDecimal.valueOf(i * 100_003L, 3));
+                insert.setString(6, "string value #" + i);
+                insert.setString(7, "text value #" + i + " lorem ipsum dolor sit amet, consectetur adipiscing elit");
+                insert.setDate(8, new Date(now - i * 86_400_000L));
+                insert.setTimestamp(9, new Timestamp(now - i * 1_000L));
+                insert.setBoolean(10, (i & 1) == 0);
+                blob[i & 0xFF] = (byte) i;
+                insert.setBytes(11, blob);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        jdbcConnection.commit();
+        jdbcConnection.setAutoCommit(autoCommit);
+    }
+
+}
@@ -0,0 +1,28 @@
+package arjdbc.jdbc;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH entry point, same options as the stock runner (<code>-h</code> for help)
+ * but with the GC profiler on by default so allocation rates get reported
+ * (<code>gc.alloc.rate.norm</code> is what to track for regressions).
+ * Passing any <code>-prof</code> replaces the default profiler.
+ */
+public class BenchmarkMain {
+
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListProfilers() ||
+            options.shouldListResultFormats() || options.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args); return;
+        }
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (options.getProfilers().isEmpty()) builder.addProfiler(GCProfiler.class);
+        new Runner(builder.build()).run();
+    }
+
+}
@@ -0,0 +1,94 @@
+package arjdbc.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single column decoding through <code>jdbcToRuby</code> (type dispatch per value) and
+ * through the column's (once resolved) {@link ColumnDecoder}, one benchmark per
+ * <code>java.sql.Types</code> branch (as reported by the driver for the column).
+ * The database is reached through the Column state (JMH would otherwise set up
+ * a second instance for the benchmark method).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class JdbcToRubyBenchmark {
+
+    @State(Scope.Thread)
+    public static class Column {
+
+        @Param({
+            "a_integer", "a_bigint", "a_double", "a_decimal", "a_string",
+            "a_text", "a_date", "a_timestamp", "a_boolean", "a_binary"
+        })
+        public String column;
+
+        BenchmarkDatabase db;
+        String sql;
+        int type;
+
+        @Setup(Level.Trial)
+        public void setup(final BenchmarkDatabase db) throws SQLException {
+            this.db = db;
+            sql = db.select(column);
+            try (Statement statement = db.jdbcConnection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+                type = resultSet.getMetaData().getColumnType(1);
+            }
+        }
+
+    }
+
+    @Benchmark
+    public void driverBaseline(final Column column, final Blackhole bh) throws SQLException {
+        final BenchmarkDatabase db = column.db;
+        try (Statement statement = db.jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(column.sql)) {
+            while (resultSet.next()) bh.consume(resultSet.getObject(1));
+        }
+    }
+
+    @Benchmark
+    public void jdbcToRuby(final Column column, final Blackhole bh) throws SQLException {
+        final BenchmarkDatabase db = column.db;
+        try (Statement statement = db.jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(column.sql)) {
+            final int type = column.type;
+            while (resultSet.next()) {
+                bh.consume(db.connection.jdbcToRuby(db.context, db.runtime, 1, type, resultSet));
+            }
+        }
+    }
+
+    @Benchmark
+    public void columnDecoder(final Column column, final Blackhole bh) throws SQLException {
+        final BenchmarkDatabase db = column.db;
+        try (Statement statement = db.jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(column.sql)) {
+            final ColumnDecoder decoder = db.connection.columnDecoder(db.context, resultSet.getMetaData(), 1, column.type, null);
+            while (resultSet.next()) {
+                bh.consume(decoder.decode(db.context, resultSet, 1));
+            }
+        }
+    }
+
+}
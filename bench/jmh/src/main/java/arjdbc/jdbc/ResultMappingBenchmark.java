@@ -0,0 +1,70 @@
+package arjdbc.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.jruby.runtime.Block;
+import org.jruby.runtime.builtin.IRubyObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Whole result mapping: <code>SELECT * FROM bench_records</code> into an
+ * <code>ActiveRecord::Result</code> (mapToResult), raw hashes (mapRawRow) and
+ * a JdbcResult (processResultSet). The driver baseline only walks the result
+ * set, the difference is what the adapter adds on top.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class ResultMappingBenchmark {
+
+    @Benchmark
+    public void driverBaseline(final BenchmarkDatabase db, final Blackhole bh) throws SQLException {
+        try (Statement statement = db.jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(db.selectAll())) {
+            final ResultSetMetaData metaData = resultSet.getMetaData();
+            final int columnCount = metaData.getColumnCount();
+            while (resultSet.next()) {
+                for (int i = 1; i <= columnCount; i++) bh.consume(resultSet.getObject(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public IRubyObject mapToResult(final BenchmarkDatabase db) throws SQLException {
+        try (Statement statement = db.jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(db.selectAll())) {
+            final RubyJdbcConnection.ColumnData[] columns =
+                    db.connection.extractColumns(db.context, db.jdbcConnection, resultSet, false);
+            return db.connection.mapToResult(db.context, db.jdbcConnection, resultSet, columns);
+        }
+    }
+
+    @Benchmark
+    public IRubyObject mapRawRow(final BenchmarkDatabase db) {
+        final IRubyObject sql = db.runtime.newString(db.selectAll());
+        return db.connection.execute_query_raw(db.context, new IRubyObject[] { sql }, Block.NULL_BLOCK);
+    }
+
+    @Benchmark
+    public IRubyObject processResultSet(final BenchmarkDatabase db) throws SQLException {
+        try (Statement statement = db.jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(db.selectAll())) {
+            final JdbcResult result = new JdbcResult(db.context, db.runtime.getObject(), db.connection, resultSet);
+            return result.toARResult(db.context);
+        }
+    }
+
+}
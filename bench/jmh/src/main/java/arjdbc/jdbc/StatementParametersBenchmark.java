@@ -0,0 +1,96 @@
+package arjdbc.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.jruby.RubyArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bind cost of <code>setStatementParameters</code> for a 10 column INSERT,
+ * with AR attributes (type resolved through the attribute's type) and with
+ * plain (primitive) Ruby values, resolving every bind's type (and encoder) or
+ * re-using the encoders resolved before (as cached statements and batches do).
+ * The statement is never executed.
+ *
+ * NOTE: JMH hands a separate instance to benchmark methods than to dependent
+ * state setups, the database is reached through the Binds state for that reason.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class StatementParametersBenchmark {
+
+    private static final String ATTRIBUTE_BINDS =
+        "T = ActiveModel::Type::Value; A = ActiveModel::Attribute\n" +
+        "[ A.new(42, T.new(:integer)), A.new(2**40, T.new(:bigint)), A.new(42.5, T.new(:float)),\n" +
+        "  A.new(BigDecimal('4242.42'), T.new(:decimal)), A.new('a string', T.new(:string)),\n" +
+        "  A.new('text ' * 10, T.new(:text)), A.new(Date.today, T.new(:date)),\n" +
+        "  A.new(Time.now, T.new(:datetime)), A.new(true, T.new(:boolean)),\n" +
+        "  A.new((0..255).map(&:chr).join.b, T.new(:binary)) ]";
+
+    // NOTE: a plain String gets bound with setString, hex so the cast to binary works
+    private static final String PRIMITIVE_BINDS =
+        "[ 42, 2**40, 42.5, BigDecimal('4242.42'), 'a string', 'text ' * 10,\n" +
+        "  Date.today, Time.now, true, 'cafebabe' * 32 ]";
+
+    @State(Scope.Thread)
+    public static class Binds {
+
+        @Param({ "attributes", "primitives" })
+        public String binds;
+
+        BenchmarkDatabase db;
+        RubyArray values;
+        PreparedStatement statement;
+        final BindEncoderChain encoders = new BindEncoderChain();
+
+        @Setup(Level.Trial)
+        public void setup(final BenchmarkDatabase db) throws SQLException {
+            this.db = db;
+            values = (RubyArray) db.runtime.evalScriptlet("attributes".equals(binds) ? ATTRIBUTE_BINDS : PRIMITIVE_BINDS);
+            statement = db.jdbcConnection.prepareStatement("INSERT INTO " + BenchmarkDatabase.TABLE +
+                    " (" + String.join(", ", BenchmarkDatabase.COLUMNS) + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            if (statement != null) statement.close();
+        }
+
+    }
+
+    @Benchmark
+    public PreparedStatement setStatementParameters(final Binds binds) throws SQLException {
+        final BenchmarkDatabase db = binds.db;
+        final PreparedStatement statement = binds.statement;
+        db.connection.setStatementParameters(db.context, db.jdbcConnection, statement, binds.values);
+        statement.clearParameters();
+        return statement;
+    }
+
+    @Benchmark
+    public PreparedStatement cachedBindEncoders(final Binds binds) throws SQLException {
+        final BenchmarkDatabase db = binds.db;
+        final PreparedStatement statement = binds.statement;
+        db.connection.setStatementParameters(db.context, db.jdbcConnection, statement, binds.values, binds.encoders);
+        statement.clearParameters();
+        return statement;
+    }
+
+}
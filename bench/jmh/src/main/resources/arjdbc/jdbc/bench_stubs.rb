@@ -0,0 +1,52 @@
+# Minimal stand-ins for the ActiveModel/ActiveRecord constants the Java side
+# resolves, the benchmarks only exercise adapter (Java) internals.
+require 'bigdecimal'
+require 'date'
+
+module ActiveModel
+  class Attribute
+    def initialize(value, type)
+      @value = value; @type = type
+    end
+
+    def value; @value end
+
+    def value_for_database; @value end
+  end
+
+  module Type
+    class Value
+      def initialize(type); @type = type end
+
+      def type; @type end
+    end
+  end
+end
+
+module ActiveSupport
+  class TimeWithZone; end
+end
+
+module ActiveRecord
+  def self.default_timezone; :utc end
+
+  class JDBCError < StandardError; end
+  class ConnectionNotEstablished < JDBCError; end
+  class NoDatabaseError < JDBCError; end
+  class TransactionIsolationError < JDBCError; end
+  class StatementInvalid < JDBCError; end
+
+  class Result
+    attr_reader :columns, :rows, :column_types
+
+    def initialize(columns, rows, column_types = nil)
+      @columns = columns; @rows = rows; @column_types = column_types
+    end
+  end
+
+  module ConnectionAdapters; end
+end
+
+module ArJdbc
+  def self.warn(message, *); end
+end
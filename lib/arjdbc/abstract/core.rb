@@ -18,6 +18,8 @@ module ArJdbc
       # Retrieve the raw `java.sql.Connection` object.
       # The unwrap parameter is useful if an attempt to unwrap a pooled (JNDI)
       # connection should be made - to really return the 'native' JDBC object.
+      # @note the unwrapped connection should not be closed, with `jdbc_pool: true`
+      # it is returned to the pool (and handed out again) once disconnected
       # @param unwrap [true, false] whether to unwrap the connection object
       # @return [Java::JavaSql::Connection] the JDBC connection
       def jdbc_connection(unwrap = nil)
@@ -0,0 +1 @@
+require 'arjdbc/h2'
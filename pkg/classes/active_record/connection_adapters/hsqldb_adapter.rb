@@ -0,0 +1 @@
+require 'arjdbc/hsqldb'
@@ -0,0 +1 @@
+require 'arjdbc/postgresql'
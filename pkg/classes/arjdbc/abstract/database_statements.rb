@@ -0,0 +1,206 @@
+# frozen_string_literal: true
+
+module ArJdbc
+  module Abstract
+
+    # This provides the basic interface for interacting with the
+    # database for JDBC based adapters
+    module DatabaseStatements
+
+      NO_BINDS = [].freeze
+
+      def exec_insert(sql, name = nil, binds = NO_BINDS, pk = nil, sequence_name = nil, returning: nil)
+        if preventing_writes?
+          raise ActiveRecord::ReadOnlyError, "Write query attempted while in readonly mode: #{sql}"
+        end
+
+        mark_transaction_written_if_write(sql)
+
+        binds = convert_legacy_binds_to_attributes(binds) if binds.first.is_a?(Array)
+
+        with_raw_connection do |conn|
+          if without_prepared_statement?(binds)
+            log(sql, name) { conn.execute_insert_pk(sql, pk) }
+          else
+            log(sql, name, binds) do
+              conn.execute_insert_pk(sql, binds, pk)
+            end
+          end
+        end
+      end
+
+      # It appears that at this point (AR 5.0) "prepare" should only ever be true
+      # if prepared statements are enabled
+      def internal_exec_query(sql, name = nil, binds = NO_BINDS, prepare: false, async: false, allow_retry: false, materialize_transactions: true)
+        if preventing_writes? && write_query?(sql)
+          raise ActiveRecord::ReadOnlyError, "Write query attempted while in readonly mode: #{sql}"
+        end
+
+        mark_transaction_written_if_write(sql)
+
+        binds = convert_legacy_binds_to_attributes(binds) if binds.first.is_a?(Array)
+
+        with_raw_connection do |conn|
+          if without_prepared_statement?(binds)
+            log(sql, name, async: async) { conn.execute_query(sql) }
+          else
+            log(sql, name, binds, async: async) do
+              # this is different from normal AR that always caches
+              statement_key = sql_key(sql) if prepare && @jdbc_statement_cache_enabled
+              conn.execute_prepared_query(sql, binds, statement_key)
+            end
+          end
+        end
+      end
+
+      def exec_update(sql, name = 'SQL', binds = NO_BINDS)
+        if preventing_writes?
+          raise ActiveRecord::ReadOnlyError, "Write query attempted while in readonly mode: #{sql}"
+        end
+
+        mark_transaction_written_if_write(sql)
+
+        binds = convert_legacy_binds_to_attributes(binds) if binds.first.is_a?(Array)
+
+        with_raw_connection do |conn|
+          if without_prepared_statement?(binds)
+            log(sql, name) { conn.execute_update(sql) }
+          else
+            log(sql, name, binds) { conn.execute_prepared_update(sql, binds) }
+          end
+        end
+      end
+      alias :exec_delete :exec_update
+
+      # Executes the (prepared) statement once per binds as a single JDBC batch :
+      #
+      #   connection.exec_prepared_batch('UPDATE entries SET title = ? WHERE id = ?', 'SQL', [ ['one', 1], ['two', 2] ])
+      #
+      # Returns the affected row counts (per binds), unless a `pk` is passed (for INSERTs) in which case
+      # a pair of the row counts and the generated keys (as a result) is returned.
+      def exec_prepared_batch(sql, name = 'SQL', binds_list = [], pk = nil)
+        if preventing_writes?
+          raise ActiveRecord::ReadOnlyError, "Write query attempted while in readonly mode: #{sql}"
+        end
+
+        mark_transaction_written_if_write(sql)
+
+        binds_list = binds_list.map do |binds|
+          binds.first.is_a?(Array) ? convert_legacy_binds_to_attributes(binds) : binds
+        end
+
+        with_raw_connection do |conn|
+          log(sql, name, binds_list.first || NO_BINDS) do
+            if pk.nil?
+              conn.execute_prepared_batch(sql, binds_list)
+            else
+              conn.execute_prepared_batch_insert_pk(sql, binds_list, pk)
+            end
+          end
+        end
+      end
+
+      # Executes a query returning a (one-pass) streaming result, rows are read off
+      # the open cursor (`jdbc_fetch_size`, by default 1000, at a time) while being iterated :
+      #
+      #   result = connection.stream_query('SELECT * FROM entries')
+      #   result.each { |row| ... } # or #each_row for arrays
+      #
+      # The result needs to be iterated (or #close-d) to release the statement.
+      # NOTE: PostgreSQL only streams with auto-commit off (e.g. inside a transaction),
+      # MySQL's Connector/J streams row-by-row unless `useCursorFetch: true` is set.
+      def stream_query(sql, name = nil, binds = NO_BINDS)
+        binds = convert_legacy_binds_to_attributes(binds) if binds.first.is_a?(Array)
+
+        with_raw_connection do |conn|
+          if without_prepared_statement?(binds)
+            log(sql, name) { conn.execute_query_stream(sql) }
+          else
+            log(sql, name, binds) { conn.execute_query_stream(sql, binds) }
+          end
+        end
+      end
+
+      # Executes a query in the background (on a separate connection), returning a
+      # pending result to be joined for the `ActiveRecord::Result` :
+      #
+      #   pending = connection.exec_query_async('SELECT * FROM entries')
+      #   ... # meanwhile do other work
+      #   pending.value # waits for the query to complete
+      #
+      # The query does not see (uncommitted) changes made in the current transaction.
+      # Requires `jdbc_pool: true`, the query runs synchronously without a pool (or
+      # when no set-up connection is available from the pool without waiting).
+      def exec_query_async(sql, name = nil, binds = NO_BINDS)
+        binds = convert_legacy_binds_to_attributes(binds) if binds.first.is_a?(Array)
+
+        with_raw_connection do |conn|
+          log(sql, name, binds, async: true) { conn.execute_prepared_query_async(sql, binds) }
+        end
+      end
+
+      # Executes statements within the block with a query timeout (in seconds) :
+      #
+      #   connection.with_query_timeout(5) { Entry.where(user_id: user.id).to_a }
+      #
+      # A (per connection) default might be configured using `query_timeout: 30`.
+      def with_query_timeout(seconds, &block)
+        with_raw_connection(materialize_transactions: false) do |conn|
+          conn.with_query_timeout(seconds, &block)
+        end
+      end
+
+      # Marks statements executed within the block as safe to be retried on (transient
+      # or connection) failures, otherwise only reads are retried (as configured with
+      # `jdbc_retry_attempts`, `jdbc_retry_backoff` and `jdbc_retry_sql_states`).
+      def retryable(&block)
+        with_raw_connection(materialize_transactions: false) do |conn|
+          conn.retryable(&block)
+        end
+      end
+
+      # Cancels the statement(s) currently running on this connection, meant to be
+      # called from another thread (e.g. when a request times out). Returns the
+      # number of statements cancelled.
+      def cancel_running_query
+        conn = @raw_connection # NOTE: not locking - the running thread holds the lock
+        conn ? conn.cancel_running_query : 0
+      end
+
+      # overridden to support legacy binds
+      def select_all(arel, name = nil, binds = NO_BINDS, preparable: nil, async: false, allow_retry: false)
+        binds = convert_legacy_binds_to_attributes(binds) if binds.first.is_a?(Array)
+        super
+      end
+
+      private
+
+      def without_prepared_statement?(binds)
+        !prepared_statements || binds.empty?
+      end
+
+      def convert_legacy_binds_to_attributes(binds)
+        binds.map do |column, value|
+          ActiveRecord::Relation::QueryAttribute.new(nil, type_cast(value, column), ActiveModel::Type::Value.new)
+        end
+      end
+
+      def preprocess_query(sql)
+        check_if_write_query(sql) if respond_to?(:check_if_write_query, true)
+        mark_transaction_written_if_write(sql) if respond_to?(:mark_transaction_written_if_write, true)
+        sql
+      end
+
+      def raw_execute(sql, name, binds = [], prepare: false, async: false, allow_retry: false, materialize_transactions: true, batch: false)
+        log(sql, name, async: async) do
+          with_raw_connection(allow_retry: allow_retry, materialize_transactions: materialize_transactions) do |conn|
+            result = conn.execute(sql)
+            verified!
+            result
+          end
+        end
+      end
+
+    end
+  end
+end
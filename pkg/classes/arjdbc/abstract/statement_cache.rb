@@ -0,0 +1,69 @@
+# frozen_string_literal: true
+
+require 'active_record/connection_adapters/statement_pool'
+
+module ArJdbc
+  module Abstract
+    module StatementCache
+
+      # This works a little differently than the AR implementation in that
+      # we are storing an actual PreparedStatement object instead of just
+      # the name of the prepared statement
+      class StatementPool < ActiveRecord::ConnectionAdapters::StatementPool
+
+        private
+
+        def dealloc(statement)
+          statement.close
+        end
+
+      end
+
+      def initialize(*args) # (connection, logger, config)
+        super
+
+        # Only say we support the statement cache if we are using prepared statements
+        # and have a max number of statements defined
+        statement_limit = self.class.type_cast_config_to_integer(@config[:statement_limit])
+        @jdbc_statement_cache_enabled = prepared_statements && (statement_limit.nil? || statement_limit > 0)
+
+        @statements = StatementPool.new(statement_limit) # AR (5.0) expects this to be stored as @statements
+      end
+
+      # NOTE: (prepared) statements are cached on the Java side (per connection),
+      # the statement key is passed along to JdbcConnection#execute_prepared_query.
+      # The cache is sized using the same `statement_limit` config as the pool and
+      # gets cleared on its own whenever the connection gets re-connected.
+
+      # @override
+      def clear_cache!(new_connection: false)
+        super
+        @raw_connection&.clear_statement_cache unless new_connection
+      end
+
+      def delete_cached_statement(sql)
+        @raw_connection&.delete_cached_statement(sql_key(sql))
+        @statements.delete(sql_key(sql))
+      end
+
+      # @deprecated statements are cached by the (Java) connection, use #sql_key
+      def fetch_cached_statement(sql)
+        @statements[sql_key(sql)] ||= @raw_connection.prepare_statement(sql)
+      end
+
+      # @return [Hash] statement cache counters (size, max_size, hits, misses and evictions)
+      def statement_cache_stats
+        @raw_connection&.statement_cache_stats
+      end
+
+      private
+
+      # This should be overridden by the adapter if the sql itself
+      # is not enough to make the key unique
+      def sql_key(sql)
+        sql
+      end
+
+    end
+  end
+end
@@ -0,0 +1,3 @@
+require 'arjdbc'
+require 'arjdbc/hsqldb/adapter'
+require 'arjdbc/hsqldb/connection_methods'
@@ -0,0 +1,4 @@
+# frozen_string_literal: true
+
+require 'arjdbc/railtie'
+ArJdbc.deprecate "require 'arjdbc/railtie' instead of 'arjdbc/jdbc/railtie'"
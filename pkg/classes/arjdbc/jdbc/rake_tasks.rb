@@ -0,0 +1,5 @@
+# frozen_string_literal: true
+
+load 'arjdbc/tasks.rb'
+
+ArJdbc.deprecate "load 'arjdbc/tasks.rb' instead of 'arjdbc/jdbc/rake_tasks.rb'"
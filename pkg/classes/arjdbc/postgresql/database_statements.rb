@@ -0,0 +1,20 @@
+# frozen_string_literal: true
+
+module ArJdbc
+  module PostgreSQL
+    module DatabaseStatements
+      def explain(arel, binds = [], options = [])
+        sql    = build_explain_clause(options) + " " + to_sql(arel, binds)
+
+        result = internal_exec_query(sql, "EXPLAIN", binds)
+        ActiveRecord::ConnectionAdapters::PostgreSQL::ExplainPrettyPrinter.new.pp(result)
+      end
+
+      def build_explain_clause(options = [])
+        return "EXPLAIN" if options.empty?
+
+        "EXPLAIN (#{options.join(", ").upcase})"
+      end
+    end
+  end
+end
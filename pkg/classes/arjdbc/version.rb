@@ -0,0 +1,3 @@
+module ArJdbc
+  VERSION = '80.0'
+end
@@ -0,0 +1,2 @@
+require 'arjdbc'
+ArJdbc.deprecate "require 'arjdbc' instead of 'jdbc_adapter'"
\ No newline at end of file
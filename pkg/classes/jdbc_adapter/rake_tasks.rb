@@ -0,0 +1,4 @@
+require 'arjdbc/tasks.rb'
+
+require 'arjdbc'
+ArJdbc.deprecate "load 'arjdbc/tasks.rb' instead of 'jdbc_adapter/rake_tasks.rb'"
\ No newline at end of file
@@ -0,0 +1,219 @@
+package arjdbc.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jruby.RubyClass;
+import org.jruby.RubyObject;
+import org.jruby.anno.JRubyMethod;
+import org.jruby.runtime.ObjectAllocator;
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+
+import static org.jruby.api.Access.objectClass;
+import static org.jruby.api.Error.runtimeError;
+
+/**
+ * A (pending) query result, the query gets executed and its rows decoded in the
+ * background while the (Ruby) caller continues, #value joins (waits for) the result.
+ * <p>
+ * Queries run on (JVM) virtual threads, at most <code>arjdbc.async.concurrency</code>
+ * (system property) at a time - others wait for their turn, without blocking callers.
+ * Failures are raised on #value, wrapped the same way as for a (synchronous) query.
+ * </p>
+ * A query without a (separate) connection of its own runs synchronously, completed
+ * once created.
+ *
+ * @see RubyJdbcConnection#execute_prepared_query_async(ThreadContext, IRubyObject, IRubyObject)
+ */
+public class AsyncQuery extends RubyObject {
+
+    static final int CONCURRENCY = Integer.getInteger("arjdbc.async.concurrency",
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("arjdbc-async-", 0).factory());
+    private static final Semaphore PERMITS = new Semaphore(CONCURRENCY, true);
+
+    private static final long POLL_INTERVAL = 100; // ms - checking for Ruby thread events while waiting
+
+    /**
+     * The query to run (in the background).
+     */
+    interface Query {
+
+        /**
+         * @param async the pending result, executing statements are to be registered with
+         * @return the result
+         * @throws Exception
+         * @see AsyncQuery#statementStarted(Statement)
+         */
+        IRubyObject call(AsyncQuery async) throws Exception;
+
+    }
+
+    private final RubyJdbcConnection connection;
+    private final FutureTask<IRubyObject> future;
+    private final Connection queryConnection; // closed by the query (or when cancelled before it runs)
+
+    private Statement statement; // being executed (guarded by this)
+    private boolean started, cancelled;
+
+    static RubyClass createAsyncQueryClass(final ThreadContext context, final RubyClass jdbcConnection) {
+        return jdbcConnection.
+                defineClassUnder(context, "AsyncQuery", objectClass(context), ObjectAllocator.NOT_ALLOCATABLE_ALLOCATOR).
+                defineMethods(context, AsyncQuery.class);
+    }
+
+    /**
+     * A query executed synchronously (on the caller's thread).
+     */
+    AsyncQuery(final ThreadContext context, final RubyClass clazz, final RubyJdbcConnection connection,
+        final Query query) {
+        super(context.runtime, clazz);
+        this.connection = connection;
+        this.queryConnection = null;
+        this.future = new FutureTask<>(() -> query.call(this));
+        future.run();
+    }
+
+    /**
+     * A query executed in the background, the query is responsible for closing its connection.
+     */
+    AsyncQuery(final ThreadContext context, final RubyClass clazz, final RubyJdbcConnection connection,
+        final Connection queryConnection, final Query query) {
+        super(context.runtime, clazz);
+        this.connection = connection;
+        this.queryConnection = queryConnection;
+        this.future = new FutureTask<>(() -> {
+            if (!queryStarted()) return context.nil; // cancelled
+            try {
+                PERMITS.acquire();
+            }
+            catch (InterruptedException e) { // cancelled while waiting for its turn
+                RubyJdbcConnection.close(queryConnection); throw e;
+            }
+            try {
+                return query.call(this);
+            }
+            finally {
+                PERMITS.release();
+            }
+        });
+        EXECUTOR.execute(future);
+    }
+
+    private synchronized boolean queryStarted() {
+        if (cancelled) return false;
+        return started = true;
+    }
+
+    /**
+     * Marks the statement as being executed, cancelling the query cancels the statement.
+     * @param statement the statement
+     * @return false if the query has already been cancelled (the statement should not be executed)
+     */
+    synchronized boolean statementStarted(final Statement statement) {
+        if (cancelled) return false;
+        this.statement = statement;
+        return true;
+    }
+
+    synchronized void statementFinished() {
+        this.statement = null;
+    }
+
+    /**
+     * Runs a (background) task on the async executor, subject to the same concurrency limit.
+     * @param task the task to run
+     */
+    static void runInBackground(final Runnable task) {
+        EXECUTOR.execute(() -> {
+            try {
+                PERMITS.acquire();
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            try {
+                task.run();
+            }
+            finally {
+                PERMITS.release();
+            }
+        });
+    }
+
+    /**
+     * Waits for the query to complete.
+     * @param context current thread context
+     * @return the query result
+     */
+    @JRubyMethod(name = { "value", "result" })
+    public IRubyObject value(final ThreadContext context) {
+        while (true) {
+            try {
+                return future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException|InterruptedException e) {
+                context.pollThreadEvents(); // Thread#raise, Thread#kill
+            }
+            catch (CancellationException e) {
+                throw runtimeError(context, "query has been cancelled");
+            }
+            catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) return connection.handleAsyncException(context, (Exception) cause);
+                throw (Error) cause;
+            }
+        }
+    }
+
+    @JRubyMethod(name = "pending?")
+    public IRubyObject pending_p(final ThreadContext context) {
+        return context.runtime.newBoolean(!future.isDone());
+    }
+
+    @JRubyMethod(name = "done?")
+    public IRubyObject done_p(final ThreadContext context) {
+        return context.runtime.newBoolean(future.isDone());
+    }
+
+    /**
+     * Cancels the query unless it already completed, a query that is already
+     * executing gets its statement cancelled (and its thread interrupted).
+     * @param context current thread context
+     * @return true if cancelled
+     */
+    @JRubyMethod
+    public IRubyObject cancel(final ThreadContext context) {
+        if (!future.cancel(true)) return context.fals;
+
+        final Statement statement; final boolean started;
+        synchronized (this) {
+            cancelled = true;
+            statement = this.statement;
+            started = this.started;
+        }
+        if (!started && queryConnection != null) RubyJdbcConnection.close(queryConnection); // never ran
+        if (statement != null) {
+            try {
+                statement.cancel();
+            }
+            catch (SQLException|RuntimeException e) { // statement might have completed (closed)
+                RubyJdbcConnection.debugMessage(context.runtime, "failed to cancel statement: ", e);
+            }
+        }
+        return context.tru;
+    }
+
+}
@@ -0,0 +1,35 @@
+package arjdbc.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+
+/**
+ * Sets a (non-nil) bind value as a prepared statement parameter.
+ * <p>
+ * Encoders are resolved per JDBC type (once per connection), prepared statements
+ * that get executed repeatedly keep the encoders resolved for their binds.
+ * </p>
+ *
+ * @see RubyJdbcConnection#newBindEncoder(int)
+ * @see BindEncoderChain
+ */
+@FunctionalInterface
+public interface BindEncoder {
+
+    /**
+     * @param context current thread context
+     * @param connection the (JDBC) connection
+     * @param statement the statement to set the parameter on
+     * @param index 1-based parameter index
+     * @param value the value (for the database) to set, never nil
+     * @param attribute the bind as passed in e.g. an <code>ActiveModel::Attribute</code>
+     * @throws SQLException if setting the parameter fails
+     */
+    void encode(ThreadContext context, Connection connection, PreparedStatement statement,
+                int index, IRubyObject value, IRubyObject attribute) throws SQLException;
+
+}
@@ -0,0 +1,83 @@
+package arjdbc.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.jruby.RubyArray;
+import org.jruby.RubyClass;
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+
+/**
+ * The (JDBC) types and encoders for a prepared statement's binds, resolved on first
+ * execution and re-used for following executions (e.g. of a cached statement or for
+ * every row of a batch).
+ * <p>
+ * A bind is only resolved again when its type changes: the bind's class and, for
+ * attributes, the (<code>ActiveModel</code>) type instance are compared by identity.
+ * Attributes without a SQL type (typed by their value) are resolved every time.
+ * </p>
+ * NOTE: not thread-safe, meant to be used along with the statement.
+ */
+final class BindEncoderChain {
+
+    private static final class Bind {
+
+        final RubyClass bindClass;
+        final IRubyObject attributeType; // null unless an attribute
+        final int kind;
+        final boolean dynamic; // type depends on the value
+        final int type;
+        final BindEncoder encoder;
+
+        Bind(RubyClass bindClass, IRubyObject attributeType, int kind, boolean dynamic, int type, BindEncoder encoder) {
+            this.bindClass = bindClass;
+            this.attributeType = attributeType;
+            this.kind = kind;
+            this.dynamic = dynamic;
+            this.type = type;
+            this.encoder = encoder;
+        }
+
+        boolean matches(final ThreadContext context, final IRubyObject bind) {
+            if ( bind.getMetaClass() != bindClass || dynamic ) return false;
+            return kind != RubyJdbcConnection.BIND_ATTRIBUTE ||
+                    RubyJdbcConnection.attributeType(context, bind) == attributeType;
+        }
+
+    }
+
+    private Bind[] binds = new Bind[0];
+
+    void setParameters(final ThreadContext context, final RubyJdbcConnection connection,
+        final Connection jdbcConnection, final PreparedStatement statement, final RubyArray binds) throws SQLException {
+        final int size = binds.getLength();
+        if ( this.binds.length != size ) this.binds = new Bind[size];
+
+        for ( int i = 0; i < size; i++ ) {
+            final IRubyObject bind = binds.eltInternal(i);
+            Bind resolved = this.binds[i];
+            if ( resolved == null || ! resolved.matches(context, bind) ) {
+                this.binds[i] = resolved = resolve(context, connection, bind);
+            }
+            final IRubyObject value = resolved.kind == RubyJdbcConnection.BIND_ATTRIBUTE ?
+                    connection.valueForDatabase(context, bind) : bind;
+            connection.setStatementParameter(context, jdbcConnection, statement, i + 1, value, bind, resolved.type, resolved.encoder);
+        }
+    }
+
+    private static Bind resolve(final ThreadContext context, final RubyJdbcConnection connection,
+        final IRubyObject bind) throws SQLException {
+        final int kind = connection.bindKind(bind);
+        IRubyObject attributeType = null; boolean dynamic = false;
+        if ( kind == RubyJdbcConnection.BIND_ATTRIBUTE ) {
+            attributeType = RubyJdbcConnection.attributeType(context, bind);
+            dynamic = attributeType == null || attributeType.isNil() ||
+                    RubyJdbcConnection.attributeSQLType(context, bind).isNil();
+        }
+        final int type = connection.bindType(context, bind, kind);
+        return new Bind(bind.getMetaClass(), attributeType, kind, dynamic, type, connection.bindEncoder(type));
+    }
+
+}
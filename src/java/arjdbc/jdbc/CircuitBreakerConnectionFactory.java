@@ -0,0 +1,155 @@
+package arjdbc.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A circuit breaker guarding (physical) connection creation, shared by all
+ * connections to the same target. After a number of consecutive connect failures
+ * the circuit opens and connecting fails fast (without going to the driver) for a
+ * cool-down period, after which a single connect (probe) is let through while
+ * others keep failing fast - a successful probe closes the circuit, a failed one
+ * opens it again (for another cool-down).
+ * <p>
+ * This avoids every connection (of every thread) paying the full driver connect
+ * timeout while hammering a database that is down (or still recovering).
+ * </p>
+ * Configured (in <i>database.yml</i>) using <code>jdbc_circuit_breaker: true</code> with
+ * optional <code>jdbc_circuit_breaker_failures</code> (consecutive failures to open the
+ * circuit) and <code>jdbc_circuit_breaker_cooldown</code> (in seconds).
+ */
+final class CircuitBreakerConnectionFactory implements ConnectionFactory {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final class Config {
+
+        int failureThreshold = 5;
+        long cooldown = 10_000; // ms
+
+    }
+
+    private static final ConcurrentHashMap<String, CircuitBreakerConnectionFactory> breakers = new ConcurrentHashMap<>(8);
+
+    /**
+     * @param key identifies the connection target e.g. URL and user
+     * @param factory the factory to open connections with
+     * @param config breaker configuration (only used when the breaker is created)
+     * @return a breaker shared for the given key
+     */
+    static CircuitBreakerConnectionFactory sharedBreaker(final String key, final ConnectionFactory factory, final Config config) {
+        return breakers.computeIfAbsent(key, k -> new CircuitBreakerConnectionFactory(factory, config));
+    }
+
+    private final ConnectionFactory factory;
+    private final int failureThreshold;
+    private final long cooldownNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt; // System.nanoTime()
+    private volatile long stateChangedAt = System.currentTimeMillis();
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder halfOpened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+
+    CircuitBreakerConnectionFactory(final ConnectionFactory factory, final Config config) {
+        this.factory = factory;
+        this.failureThreshold = Math.max(config.failureThreshold, 1);
+        this.cooldownNanos = config.cooldown * 1_000_000;
+    }
+
+    @Override
+    public Connection newConnection() throws SQLException {
+        boolean probe = false;
+        switch (state.get()) {
+            case OPEN:
+                if (System.nanoTime() - openedAt < cooldownNanos || !transition(State.OPEN, State.HALF_OPEN)) {
+                    throw rejected();
+                }
+                probe = true; // single-flight - others fail fast while probing
+                break;
+            case HALF_OPEN:
+                throw rejected();
+            default: // CLOSED
+        }
+
+        Connection connection = null;
+        try {
+            connection = factory.newConnection();
+        }
+        finally { // (probe) state must not get stuck on errors e.g. an OutOfMemoryError
+            if (connection == null) failed(probe);
+            else succeeded(probe);
+        }
+        return connection;
+    }
+
+    private void succeeded(final boolean probe) {
+        consecutiveFailures.set(0);
+        if (probe) transition(State.HALF_OPEN, State.CLOSED);
+        else if (state.get() == State.OPEN) transition(State.OPEN, State.CLOSED); // connect started before opening
+    }
+
+    private void failed(final boolean probe) {
+        failures.increment();
+        if (probe) {
+            openedAt = System.nanoTime();
+            transition(State.HALF_OPEN, State.OPEN);
+        }
+        else if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.get() == State.CLOSED) {
+            openedAt = System.nanoTime();
+            transition(State.CLOSED, State.OPEN);
+        }
+    }
+
+    private boolean transition(final State from, final State to) {
+        if (!state.compareAndSet(from, to)) return false;
+        stateChangedAt = System.currentTimeMillis();
+        switch (to) {
+            case OPEN: opened.increment(); break;
+            case HALF_OPEN: halfOpened.increment(); break;
+            case CLOSED: closed.increment(); consecutiveFailures.set(0); break;
+        }
+        return true;
+    }
+
+    private SQLException rejected() {
+        rejected.increment();
+        final long retryIn = Math.max(0, cooldownNanos - (System.nanoTime() - openedAt)) / 1_000_000;
+        return new SQLTransientConnectionException(
+                "circuit breaker open, not connecting (after " + failureThreshold + " consecutive failures)" +
+                        (state.get() == State.OPEN ? ", retry in " + retryIn + "ms" : ", probing"), "08001");
+    }
+
+    ConnectionFactory getFactory() { return factory; }
+
+    State getState() { return state.get(); }
+
+    long getStateChangedAt() { return stateChangedAt; }
+
+    int getFailureThreshold() { return failureThreshold; }
+
+    long getCooldown() { return cooldownNanos / 1_000_000; }
+
+    int getConsecutiveFailures() { return consecutiveFailures.get(); }
+
+    long getFailureCount() { return failures.sum(); }
+
+    long getRejectedCount() { return rejected.sum(); }
+
+    long getOpenedCount() { return opened.sum(); }
+
+    long getHalfOpenedCount() { return halfOpened.sum(); }
+
+    long getClosedCount() { return closed.sum(); }
+
+}
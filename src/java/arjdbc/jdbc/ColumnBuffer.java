@@ -0,0 +1,300 @@
+package arjdbc.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.jcodings.specific.UTF8Encoding;
+import org.jruby.RubyArray;
+import org.jruby.RubyString;
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+import org.jruby.util.ByteList;
+
+import static org.jruby.api.Create.newArrayNoCopy;
+
+/**
+ * Column-wise storage of result values (for columnar result mapping).
+ * <p>
+ * A buffer is resolved once per column (from the column's JDBC type) and reads
+ * the column's value of every row off the result set into (primitive) storage,
+ * Ruby objects are only created once a value is requested.
+ * </p>
+ *
+ * @see RubyJdbcConnection#newColumnBuffer(ThreadContext, int, int, ColumnDecoder)
+ */
+public abstract class ColumnBuffer {
+
+    static final int INITIAL_CAPACITY = 16;
+
+    protected final int column; // 1-based (result set) index
+    protected int size;
+
+    protected ColumnBuffer(final int column) {
+        this.column = column;
+    }
+
+    /**
+     * Reads the value from the result set's current row (as the next value).
+     * @param context current thread context
+     * @param resultSet the result set positioned at the row
+     * @throws SQLException if reading the value fails
+     */
+    public abstract void read(final ThreadContext context, final ResultSet resultSet) throws SQLException;
+
+    /**
+     * @param context current thread context
+     * @param row 0-based row index
+     * @return the (Ruby) value for the given row
+     */
+    public abstract IRubyObject get(final ThreadContext context, final int row);
+
+    /**
+     * @return number of values (rows) read
+     */
+    public final int size() {
+        return size;
+    }
+
+    static int newCapacity(final int capacity) {
+        return capacity < INITIAL_CAPACITY ? INITIAL_CAPACITY : capacity + (capacity >> 1);
+    }
+
+    /**
+     * Reads all (remaining) rows from the result set.
+     * @param context current thread context
+     * @param resultSet the result set to read
+     * @param columns column buffers (one per column)
+     * @return the number of rows read
+     * @throws SQLException if reading the result set fails
+     */
+    public static int readRows(final ThreadContext context, final ResultSet resultSet,
+        final ColumnBuffer[] columns) throws SQLException {
+        int rows = 0;
+        while (resultSet.next()) {
+            for (int i = 0; i < columns.length; i++) columns[i].read(context, resultSet);
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Materializes read columns into an array of (row) arrays.
+     * @param context current thread context
+     * @param columns the (read) column buffers
+     * @param rowCount number of rows
+     * @return a Ruby array of row arrays
+     */
+    public static RubyArray toRows(final ThreadContext context, final ColumnBuffer[] columns, final int rowCount) {
+        final IRubyObject[][] rows = new IRubyObject[rowCount][columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            final ColumnBuffer column = columns[c];
+            for (int r = 0; r < rowCount; r++) rows[r][c] = column.get(context, r);
+        }
+        final IRubyObject[] values = new IRubyObject[rowCount];
+        for (int r = 0; r < rowCount; r++) values[r] = newArrayNoCopy(context, rows[r]);
+        return newArrayNoCopy(context, values);
+    }
+
+    /**
+     * Generic buffer, decodes values eagerly using the column's {@link ColumnDecoder}.
+     */
+    public static final class Objects extends ColumnBuffer {
+
+        private final ColumnDecoder decoder;
+        private IRubyObject[] values = IRubyObject.NULL_ARRAY;
+
+        /**
+         * @param column 1-based column index
+         * @param decoder the column's decoder
+         * @see RubyJdbcConnection#newColumnDecoder(ThreadContext, java.sql.ResultSetMetaData, int, int)
+         */
+        public Objects(final int column, final ColumnDecoder decoder) {
+            super(column);
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void read(final ThreadContext context, final ResultSet resultSet) throws SQLException {
+            if (size == values.length) values = Arrays.copyOf(values, newCapacity(size));
+            values[size++] = decoder.decode(context, resultSet, column);
+        }
+
+        @Override
+        public IRubyObject get(final ThreadContext context, final int row) {
+            return values[row];
+        }
+
+    }
+
+    /**
+     * TINYINT, SMALLINT and INTEGER values into a <code>long[]</code>.
+     */
+    public static final class Longs extends ColumnBuffer {
+
+        private long[] values = new long[INITIAL_CAPACITY];
+        private final BitSet nulls = new BitSet();
+
+        public Longs(final int column) { super(column); }
+
+        @Override
+        public void read(final ThreadContext context, final ResultSet resultSet) throws SQLException {
+            if (size == values.length) values = Arrays.copyOf(values, newCapacity(size));
+            final long value = resultSet.getLong(column);
+            if (value == 0 && resultSet.wasNull()) nulls.set(size);
+            values[size++] = value;
+        }
+
+        @Override
+        public IRubyObject get(final ThreadContext context, final int row) {
+            return nulls.get(row) ? context.nil : context.runtime.newFixnum(values[row]);
+        }
+
+    }
+
+    /**
+     * REAL, FLOAT and DOUBLE values into a <code>double[]</code>.
+     */
+    public static final class Doubles extends ColumnBuffer {
+
+        private double[] values = new double[INITIAL_CAPACITY];
+        private final BitSet nulls = new BitSet();
+
+        public Doubles(final int column) { super(column); }
+
+        @Override
+        public void read(final ThreadContext context, final ResultSet resultSet) throws SQLException {
+            if (size == values.length) values = Arrays.copyOf(values, newCapacity(size));
+            final double value = resultSet.getDouble(column);
+            if (value == 0 && resultSet.wasNull()) nulls.set(size);
+            values[size++] = value;
+        }
+
+        @Override
+        public IRubyObject get(final ThreadContext context, final int row) {
+            return nulls.get(row) ? context.nil : context.runtime.newFloat(values[row]);
+        }
+
+    }
+
+    /**
+     * BOOLEAN values into a bit set.
+     */
+    public static final class Booleans extends ColumnBuffer {
+
+        private final BitSet values = new BitSet();
+        private final BitSet nulls = new BitSet();
+
+        public Booleans(final int column) { super(column); }
+
+        @Override
+        public void read(final ThreadContext context, final ResultSet resultSet) throws SQLException {
+            final boolean value = resultSet.getBoolean(column);
+            if (value) values.set(size);
+            else if (resultSet.wasNull()) nulls.set(size);
+            size++;
+        }
+
+        @Override
+        public IRubyObject get(final ThreadContext context, final int row) {
+            return nulls.get(row) ? context.nil : context.runtime.newBoolean(values.get(row));
+        }
+
+    }
+
+    /**
+     * Character values as (UTF-8) bytes, stored back-to-back in a single
+     * <code>byte[]</code> with an offset per row. With drivers returning text as
+     * bytes values are copied as is (no <code>java.lang.String</code> involved).
+     */
+    public static final class Strings extends ColumnBuffer {
+
+        private byte[] bytes = new byte[INITIAL_CAPACITY * 16];
+        private int length; // of bytes used
+        private int[] offsets = new int[INITIAL_CAPACITY + 1]; // offsets[row + 1] is the (exclusive) end
+        private final BitSet nulls = new BitSet();
+        private final boolean readBytes;
+
+        public Strings(final int column) { this(column, false); }
+
+        /**
+         * @param column 1-based column index
+         * @param readBytes whether to read values using <code>ResultSet#getBytes</code>
+         * @see RubyJdbcConnection#isStringBytes()
+         */
+        public Strings(final int column, final boolean readBytes) {
+            super(column);
+            this.readBytes = readBytes;
+        }
+
+        @Override
+        public void read(final ThreadContext context, final ResultSet resultSet) throws SQLException {
+            if (size + 1 == offsets.length) offsets = Arrays.copyOf(offsets, newCapacity(size) + 1);
+            if (readBytes) {
+                final byte[] value = resultSet.getBytes(column);
+                if (value == null) nulls.set(size);
+                else append(value);
+            } else {
+                final String value = resultSet.getString(column);
+                if (value == null) nulls.set(size);
+                else append(value);
+            }
+            offsets[++size] = length;
+        }
+
+        @Override
+        public IRubyObject get(final ThreadContext context, final int row) {
+            if (nulls.get(row)) return context.nil;
+            final byte[] value = Arrays.copyOfRange(bytes, offsets[row], offsets[row + 1]);
+            return RubyString.newString(context.runtime, new ByteList(value, UTF8Encoding.INSTANCE, false));
+        }
+
+        // NOTE: encodes directly into the buffer, un-paired surrogates end up as '?' (same as String#getBytes)
+        private void append(final String value) {
+            final int len = value.length();
+            ensure(length + len * 3);
+            final byte[] bytes = this.bytes;
+            int p = length;
+            for (int i = 0; i < len; i++) {
+                final char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[p++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[p++] = (byte) (0xC0 | (c >> 6));
+                    bytes[p++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    final int cp;
+                    if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        cp = Character.toCodePoint(c, value.charAt(++i));
+                    } else {
+                        bytes[p++] = '?'; continue;
+                    }
+                    bytes[p++] = (byte) (0xF0 | (cp >> 18));
+                    bytes[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    bytes[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    bytes[p++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    bytes[p++] = (byte) (0xE0 | (c >> 12));
+                    bytes[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[p++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            length = p;
+        }
+
+        private void append(final byte[] value) {
+            ensure(length + value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        private void ensure(final int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length + (bytes.length >> 1)));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+package arjdbc.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+
+/**
+ * Converts a column's (JDBC) value into a Ruby object.
+ * <p>
+ * Decoders are registered (per JDBC type or type name) with {@link ColumnDecoders}
+ * and resolved once per column (of a result), rows are then decoded without
+ * looking at the column's type again.
+ * </p>
+ *
+ * @see RubyJdbcConnection#registerColumnDecoders(ColumnDecoders)
+ * @see RubyJdbcConnection#newColumnDecoder(ThreadContext, java.sql.ResultSetMetaData, int, int)
+ */
+@FunctionalInterface
+public interface ColumnDecoder {
+
+    /**
+     * @param context current thread context
+     * @param resultSet the result set positioned at the row
+     * @param column 1-based column index
+     * @return the (Ruby) value, nil for NULL
+     * @throws SQLException if retrieving the value fails
+     */
+    IRubyObject decode(ThreadContext context, ResultSet resultSet, int column) throws SQLException;
+
+}
@@ -0,0 +1,90 @@
+package arjdbc.jdbc;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Column decoders of a connection, by JDBC type and (database specific) type name.
+ * <p>
+ * Built once per connection, the base connection registers decoders for the standard
+ * JDBC types and adapters register (or replace) their own on top of those.
+ * A decoder registered for a type name takes precedence over one for the JDBC type.
+ * </p>
+ *
+ * @see RubyJdbcConnection#registerColumnDecoders(ColumnDecoders)
+ */
+public final class ColumnDecoders {
+
+    private final HashMap<Integer, ColumnDecoder> byType = new HashMap<>(48);
+    private final HashMap<String, ColumnDecoder> byTypeName = new HashMap<>(8);
+    private ColumnDecoder defaultDecoder;
+
+    ColumnDecoders() { /* built by the connection */ }
+
+    /**
+     * @param decoder the decoder
+     * @param types JDBC type(s) to decode using the decoder
+     * @return this
+     */
+    public ColumnDecoders register(final ColumnDecoder decoder, final int... types) {
+        for ( final int type : types ) byType.put(type, decoder);
+        return this;
+    }
+
+    /**
+     * @param typeName (database specific) type name as reported by <code>ResultSetMetaData#getColumnTypeName</code>
+     * @param decoder the decoder
+     * @return this
+     */
+    public ColumnDecoders register(final String typeName, final ColumnDecoder decoder) {
+        byTypeName.put(typeName.toLowerCase(Locale.ENGLISH), decoder);
+        return this;
+    }
+
+    /**
+     * @param decoder decoder used for types that have none registered
+     * @return this
+     */
+    public ColumnDecoders registerDefault(final ColumnDecoder decoder) {
+        this.defaultDecoder = decoder;
+        return this;
+    }
+
+    /**
+     * @param type the JDBC type
+     * @return decoder for the JDBC type (the default one if none registered)
+     */
+    public ColumnDecoder get(final int type) {
+        final ColumnDecoder decoder = byType.get(type);
+        return decoder != null ? decoder : defaultDecoder;
+    }
+
+    /**
+     * @param typeName the type name
+     * @return decoder registered for the type name, null if none
+     */
+    public ColumnDecoder get(final String typeName) {
+        if ( typeName == null || byTypeName.isEmpty() ) return null;
+        return byTypeName.get(typeName.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Resolves the decoder for a result column, the type name is only retrieved when
+     * decoders have been registered by type name.
+     * @param metaData the result's meta-data
+     * @param column 1-based column index
+     * @param type the column's JDBC type
+     * @return the decoder
+     * @throws SQLException if retrieving the column's type name fails
+     */
+    public ColumnDecoder resolve(final ResultSetMetaData metaData, final int column, final int type) throws SQLException {
+        if ( ! byTypeName.isEmpty() && metaData != null ) {
+            final ColumnDecoder decoder = get(metaData.getColumnTypeName(column));
+            if ( decoder != null ) return decoder;
+        }
+        return get(type);
+    }
+
+}
@@ -0,0 +1,113 @@
+package arjdbc.jdbc;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+/**
+ * (Immutable) database capabilities as reported by the driver's meta-data, probed
+ * once per (physical) connection instead of asking {@link DatabaseMetaData} on
+ * every use e.g. identifier case conversion for every column of every result.
+ * <p>
+ * Adapters needing more (or different) capabilities might extend this class and
+ * return their own from {@link RubyJdbcConnection#newCapabilities(java.sql.Connection, DatabaseMetaData)}.
+ * </p>
+ */
+public class DialectCapabilities {
+
+    private final boolean storesUpperCaseIdentifiers;
+    private final boolean storesLowerCaseIdentifiers;
+    private final boolean storesMixedCaseIdentifiers;
+    private final boolean supportsGetGeneratedKeys;
+    private final boolean supportsSchemas;
+    private final boolean supportsSavepoints;
+    private final String databaseProductName;
+
+    protected DialectCapabilities(final DatabaseMetaData metaData) throws SQLException {
+        this.storesUpperCaseIdentifiers = metaData.storesUpperCaseIdentifiers();
+        this.storesLowerCaseIdentifiers = metaData.storesLowerCaseIdentifiers();
+        this.storesMixedCaseIdentifiers = metaData.storesMixedCaseIdentifiers();
+        this.supportsGetGeneratedKeys = metaData.supportsGetGeneratedKeys();
+        this.supportsSchemas = metaData.supportsSchemasInTableDefinitions();
+        this.supportsSavepoints = metaData.supportsSavepoints();
+        this.databaseProductName = metaData.getDatabaseProductName();
+    }
+
+    /**
+     * @see DatabaseMetaData#storesUpperCaseIdentifiers()
+     */
+    public final boolean storesUpperCaseIdentifiers() { return storesUpperCaseIdentifiers; }
+
+    /**
+     * @see DatabaseMetaData#storesLowerCaseIdentifiers()
+     */
+    public final boolean storesLowerCaseIdentifiers() { return storesLowerCaseIdentifiers; }
+
+    /**
+     * @see DatabaseMetaData#storesMixedCaseIdentifiers()
+     */
+    public final boolean storesMixedCaseIdentifiers() { return storesMixedCaseIdentifiers; }
+
+    /**
+     * @see DatabaseMetaData#supportsGetGeneratedKeys()
+     */
+    public final boolean supportsGetGeneratedKeys() { return supportsGetGeneratedKeys; }
+
+    /**
+     * @see DatabaseMetaData#supportsSchemasInTableDefinitions()
+     */
+    public final boolean supportsSchemas() { return supportsSchemas; }
+
+    /**
+     * @see DatabaseMetaData#supportsSavepoints()
+     */
+    public final boolean supportsSavepoints() { return supportsSavepoints; }
+
+    /**
+     * @see DatabaseMetaData#getDatabaseProductName()
+     */
+    public final String getDatabaseProductName() { return databaseProductName; }
+
+    /**
+     * The statement prefix to get a query's plan (without running it) e.g. used for slow queries.
+     * @return the (EXPLAIN) prefix, null if not supported
+     */
+    public String getExplainPrefix() {
+        if ( databaseProductName == null ) return null;
+        switch ( databaseProductName ) {
+            case "H2":
+            case "PostgreSQL":
+                return "EXPLAIN ";
+            case "HSQL Database Engine":
+                return "EXPLAIN PLAN FOR ";
+            case "SQLite":
+                return "EXPLAIN QUERY PLAN ";
+        }
+        return null;
+    }
+
+    /**
+     * Convert an identifier coming back from the database to the case Rails expects.
+     * @see RubyJdbcConnection#caseConvertIdentifierForRails(DatabaseMetaData, String)
+     */
+    public String caseConvertIdentifierForRails(final String value) {
+        if ( value == null ) return null;
+        return storesUpperCaseIdentifiers ? value.toLowerCase() : value;
+    }
+
+    /**
+     * Convert an identifier to the database's internal storage case.
+     * @see RubyJdbcConnection#caseConvertIdentifierForJdbc(DatabaseMetaData, String)
+     */
+    public String caseConvertIdentifierForJdbc(final String value) {
+        if ( value == null ) return null;
+
+        if ( storesUpperCaseIdentifiers ) {
+            return value.toUpperCase();
+        }
+        else if ( storesLowerCaseIdentifiers ) {
+            return value.toLowerCase();
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,148 @@
+package arjdbc.jdbc;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import org.jruby.RubyString;
+import org.jruby.runtime.builtin.IRubyObject;
+
+import arjdbc.util.SqlFingerprint;
+
+/**
+ * JDK Flight Recorder events, so that time spent in JDBC (and mapping results) shows
+ * up per query (fingerprint) in recordings e.g. to correlate allocation with queries.
+ * <p>
+ * Events are disabled unless a recording enables them (<code>arjdbc.*</code>), when
+ * disabled their cost is a (JIT-ed away) allocation and a flag check. Statement events
+ * are only emitted for timed calls, same as {@link StatementTimings}.
+ * </p>
+ */
+public final class JdbcEvents {
+
+    private JdbcEvents() { /* no instances */ }
+
+    static final String CATEGORY = "ActiveRecord-JDBC";
+
+    private static final Execute EXECUTE = new Execute();
+    private static final ResultMapping RESULT_MAPPING = new ResultMapping();
+
+    static boolean isExecuteEnabled() { return EXECUTE.isEnabled(); }
+
+    static boolean isResultMappingEnabled() { return RESULT_MAPPING.isEnabled(); }
+
+    private static final int MAX_SQL_LENGTH = 4096;
+
+    static String sql(final IRubyObject sql) {
+        if ( sql == null ) return null;
+        final String str = sql.toString();
+        return str.length() > MAX_SQL_LENGTH ? str.substring(0, MAX_SQL_LENGTH) + "..." : str;
+    }
+
+    static String fingerprint(final IRubyObject sql, final boolean backslashEscapes) {
+        if ( ! ( sql instanceof RubyString ) ) return null;
+        return Long.toHexString(SqlFingerprint.fingerprint(((RubyString) sql).getByteList(), backslashEscapes));
+    }
+
+    @Name("arjdbc.StatementExecute")
+    @Label("Statement Execute")
+    @Description("Executing a statement (in the driver)")
+    @Category({ CATEGORY, "Statement" })
+    public static final class Execute extends Event {
+
+        @Label("Database")
+        public String database;
+
+        @Label("Call")
+        public String call;
+
+        @Label("SQL")
+        public String sql;
+
+        @Label("Fingerprint")
+        @Description("Identifies the (normalized) statement")
+        public String fingerprint;
+
+    }
+
+    @Name("arjdbc.ResultMapping")
+    @Label("Result Mapping")
+    @Description("Fetching rows and converting them into a (Ruby) result")
+    @Category({ CATEGORY, "Statement" })
+    public static final class ResultMapping extends Event {
+
+        @Label("Database")
+        public String database;
+
+        @Label("Call")
+        public String call;
+
+        @Label("SQL")
+        public String sql;
+
+        @Label("Fingerprint")
+        @Description("Identifies the (normalized) statement")
+        public String fingerprint;
+
+        @Label("Rows")
+        public int rows;
+
+        @Label("Columns")
+        public int columns;
+
+        @Label("Bytes Decoded")
+        @Description("Size of string and binary values (approximate)")
+        @DataAmount
+        public long bytes;
+
+    }
+
+    @Name("arjdbc.ConnectionAcquire")
+    @Label("Connection Acquire")
+    @Description("Getting a (JDBC) connection for a statement")
+    @Category({ CATEGORY, "Connection" })
+    @StackTrace(false)
+    public static final class Acquire extends Event {
+
+        @Label("Database")
+        public String database;
+
+    }
+
+    @Name("arjdbc.ConnectionValidate")
+    @Label("Connection Validate")
+    @Description("Checking whether a connection is (still) valid")
+    @Category({ CATEGORY, "Connection" })
+    @StackTrace(false)
+    public static final class Validate extends Event {
+
+        @Label("Database")
+        public String database;
+
+        @Label("Valid")
+        public boolean valid;
+
+    }
+
+    @Name("arjdbc.Reconnect")
+    @Label("Reconnect")
+    @Description("Replacing the (JDBC) connection with a new one")
+    @Category({ CATEGORY, "Connection" })
+    public static final class Reconnect extends Event {
+
+        @Label("Database")
+        public String database;
+
+        @Label("Reason")
+        public String reason;
+
+        @Label("Success")
+        public boolean success;
+
+    }
+
+}
@@ -14,9 +14,10 @@ import org.jruby.runtime.Block;
 import org.jruby.runtime.ThreadContext;
 import org.jruby.runtime.builtin.IRubyObject;
 
+import arjdbc.util.StringDedup;
+
 import static org.jruby.api.Create.newArray;
 import static org.jruby.api.Create.newArrayNoCopy;
-import static org.jruby.api.Create.newHash;
 
 /**
  * This is a base Result class to be returned as the "raw" result.
@@ -25,9 +26,13 @@ import static org.jruby.api.Create.newHash;
  */
 public class JdbcResult extends RubyObject {
     // Should these be private with accessors?
-    protected final RubyArray values;
+    protected RubyArray values; // NOTE: lazy with columnar results - use getValues
     protected RubyHash[] tuples;
 
+    private ColumnBuffer[] columns; // only with columnar results (till values are materialized)
+    private int rowCount;
+    private final ColumnDecoder[] decoders; // resolved once per column
+
     protected final int[] columnTypes;
     protected RubyString[] columnNames;
     protected final RubyJdbcConnection connection;
@@ -35,7 +40,6 @@ public class JdbcResult extends RubyObject {
     protected JdbcResult(ThreadContext context, RubyClass clazz, RubyJdbcConnection connection, ResultSet resultSet) throws SQLException {
         super(context.runtime, clazz);
 
-        values = newArray(context);
         this.connection = connection;
 
         final ResultSetMetaData resultMetaData = resultSet.getMetaData();
@@ -43,10 +47,33 @@ public class JdbcResult extends RubyObject {
         // FIXME: if we support MSSQL we may need to change how we deal with omitting elements
         columnNames = new RubyString[columnCount];
         columnTypes = new int[columnCount];
+        decoders = new ColumnDecoder[columnCount];
         extractColumnInfo(context, resultMetaData);
         processResultSet(context, resultSet);
     }
 
+    /**
+     * @param context current thread context
+     * @param clazz metaclass for this result object
+     * @param connection the connection this result is for
+     * @param resultSet the result set to process
+     * @param columnNames (already) resolved column names e.g. from a cached statement's plan
+     * @param columnTypes (already) resolved column (JDBC) types
+     * @throws SQLException throws!
+     */
+    protected JdbcResult(ThreadContext context, RubyClass clazz, RubyJdbcConnection connection, ResultSet resultSet,
+                         RubyString[] columnNames, int[] columnTypes) throws SQLException {
+        super(context.runtime, clazz);
+
+        this.connection = connection;
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.decoders = new ColumnDecoder[columnTypes.length];
+        final ResultSetMetaData resultMetaData = resultSet.getMetaData();
+        for (int i = 0; i < columnNames.length; i++) setupDecoder(context, resultMetaData, i, columnNames[i].toString());
+        processResultSet(context, resultSet);
+    }
+
     /**
      * Builds a type map for creating the AR::Result, most adapters don't need it
      * @param context which thread this is running on.
@@ -68,11 +95,19 @@ public class JdbcResult extends RubyObject {
         for (int i = 1; i <= columnCount; i++) { // metadata is one-based
             // This appears to not be used by Postgres, MySQL, or SQLite so leaving it off for now
             //name = caseConvertIdentifierForRails(connection, name);
-            columnNames[i - 1] = RubyJdbcConnection.STRING_CACHE.get(context, resultMetaData.getColumnLabel(i));
+            final String label = resultMetaData.getColumnLabel(i);
+            columnNames[i - 1] = RubyJdbcConnection.STRING_CACHE.get(context, label);
             columnTypes[i - 1] = resultMetaData.getColumnType(i);
+            setupDecoder(context, resultMetaData, i - 1, label);
         }
     }
 
+    private void setupDecoder(final ThreadContext context, final ResultSetMetaData resultMetaData,
+                              final int index, final String name) throws SQLException {
+        final StringDedup dedup = connection.stringDedup(name, columnTypes[index]);
+        decoders[index] = connection.columnDecoder(context, resultMetaData, index + 1, columnTypes[index], dedup);
+    }
+
     /**
      * @return an array with the column names as Ruby strings
      */
@@ -80,21 +115,48 @@ public class JdbcResult extends RubyObject {
         return columnNames;
     }
 
+    /**
+     * @param context current thread context
+     * @return an array of row arrays (materialized on first access with columnar results)
+     */
+    protected final RubyArray getValues(final ThreadContext context) {
+        if (values == null) {
+            values = ColumnBuffer.toRows(context, columns, rowCount);
+            columns = null;
+        }
+        return values;
+    }
+
+    /**
+     * @return number of rows in this result
+     */
+    protected final int getRowCount() {
+        return values == null ? rowCount : values.size();
+    }
+
+    /**
+     * Returns a single value, without materializing all rows with columnar results.
+     * @param context current thread context
+     * @param row 0-based row index
+     * @param column 0-based column index
+     * @return the value
+     */
+    protected final IRubyObject getValue(final ThreadContext context, final int row, final int column) {
+        if (values == null) return columns[column].get(context, row);
+        return ((RubyArray) values.eltInternal(row)).eltInternal(column);
+    }
+
     /**
      * Builds an array of hashes with column names to column values
      * @param context current thread context
      */
     protected void populateTuples(final ThreadContext context) {
-        int columnCount = columnNames.length;
+        final RubyArray values = getValues(context);
+        final RowShape shape = new RowShape(columnNames); // keys hashed once (not per row)
         tuples = new RubyHash[values.size()];
 
         for (int i = 0; i < tuples.length; i++) {
-            RubyArray currentRow = (RubyArray) values.eltInternal(i);
-            RubyHash hash = newHash(context);
-            for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
-                hash.fastASet(columnNames[columnIndex], currentRow.eltInternal(columnIndex));
-            }
-            tuples[i] = hash;
+            tuples[i] = shape.newRow(context, (RubyArray) values.eltInternal(i));
         }
     }
 
@@ -107,11 +169,21 @@ public class JdbcResult extends RubyObject {
     private void processResultSet(final ThreadContext context, final ResultSet resultSet) throws SQLException {
         int columnCount = columnNames.length;
 
+        if (connection.isColumnarResults()) { // decoded once rows get accessed
+            columns = new ColumnBuffer[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columns[i] = connection.newColumnBuffer(context, i + 1, columnTypes[i], decoders[i]);
+            }
+            rowCount = ColumnBuffer.readRows(context, resultSet, columns);
+            return;
+        }
+
+        final RubyArray values = this.values = newArray(context);
         while (resultSet.next()) {
             final IRubyObject[] row = new IRubyObject[columnCount];
 
-            for (int i = 0; i < columnCount; i++) {
-                row[i] = connection.jdbcToRuby(context, context.runtime, i + 1, columnTypes[i], resultSet); // Result Set is 1 based
+            for (int i = 0; i < columnCount; i++) { // Result Set is 1 based
+                row[i] = decoders[i].decode(context, resultSet, i + 1);
             }
 
             values.append(context, newArrayNoCopy(context, row));
@@ -128,6 +200,6 @@ public class JdbcResult extends RubyObject {
         final RubyClass Result = RubyJdbcConnection.getResult(context);
         // FIXME: Is this broken?  no copy of an array AR::Result can modify?  or should it be frozen?
         final RubyArray rubyColumnNames = newArrayNoCopy(context, getColumnNames());
-        return Result.newInstance(context, rubyColumnNames, values, columnTypeMap(context), Block.NULL_BLOCK);
+        return Result.newInstance(context, rubyColumnNames, getValues(context), columnTypeMap(context), Block.NULL_BLOCK);
     }
 }
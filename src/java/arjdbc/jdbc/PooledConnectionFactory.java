@@ -0,0 +1,645 @@
+package arjdbc.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jruby.Finalizable;
+
+/**
+ * A (built-in) connection pool, for when connections are not coming from a
+ * (JNDI) data-source. Physical connections are (re-)used across connection
+ * instances (and <code>reconnect!</code>-s), closing a connection handed out
+ * returns it back to the pool.
+ * <p>
+ * Idle connections are kept in a (lock-free) LIFO queue, while the number of
+ * connections handed out is bounded by the max size - borrowing waits up to
+ * the checkout timeout when exhausted. Idle connections are validated on borrow
+ * (unless validated within the <code>connection_alive_window</code>) and retired
+ * once they exceed the max lifetime, a background task evicts (idle timed-out)
+ * connections, validates idle connections (every <code>jdbc_pool_validation_interval</code>)
+ * and keeps the pool at its min size.
+ * </p>
+ * Configured (in <i>database.yml</i>) using <code>jdbc_pool: true</code> with
+ * optional <code>jdbc_pool_min_size</code>, <code>jdbc_pool_max_size</code>
+ * (defaults to <code>pool</code>), and timeouts (in seconds) :
+ * <code>jdbc_pool_idle_timeout</code>, <code>jdbc_pool_max_lifetime</code>,
+ * <code>jdbc_pool_checkout_timeout</code> and <code>jdbc_pool_validation_timeout</code>.
+ * <p>
+ * Pools are shared between connections (to the same target), each connection holds
+ * a {@link Lease} on its pool - a pool gets closed once all leases are released
+ * (on <code>disconnect!</code> or when the Ruby runtime is torn down).
+ * </p>
+ * NOTE: session state changed by a borrower using the JDBC API (transaction isolation,
+ * read-only, catalog and schema) is restored when the connection is returned,
+ * state changed using (raw) SQL is not tracked.
+ * <p>
+ * Connections that failed with a connection error (SQLState class 08) are not returned
+ * to the pool, failures of statements are reported using {@link #failed(Connection, Throwable)}
+ * (as statements are not wrapped) - such connections get validated when returned.
+ * </p>
+ */
+final class PooledConnectionFactory implements ConnectionFactory {
+
+    static final class Config {
+
+        int minSize = 0;
+        int maxSize = 5; // same as AR's pool default
+        long idleTimeout = 300_000; // ms (0 - never evict)
+        long maxLifetime = 1_800_000; // ms (0 - no limit)
+        long checkoutTimeout = 5_000; // ms
+        static final int DEFAULT_VALIDATION_TIMEOUT = 5; // seconds
+
+        int validationTimeout = DEFAULT_VALIDATION_TIMEOUT; // seconds (0 - no validation on borrow)
+        long validationWindow = 0; // ms - skip validation on borrow when validated within
+        long validationInterval = 0; // ms - validate idle connections in the background (0 - never)
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Config)) return false;
+            final Config that = (Config) obj;
+            return minSize == that.minSize && maxSize == that.maxSize &&
+                   idleTimeout == that.idleTimeout && maxLifetime == that.maxLifetime &&
+                   checkoutTimeout == that.checkoutTimeout && validationTimeout == that.validationTimeout &&
+                   validationWindow == that.validationWindow && validationInterval == that.validationInterval;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (31 * (31 * maxSize + minSize) + idleTimeout ^ maxLifetime ^ checkoutTimeout);
+        }
+
+    }
+
+    private static final ConcurrentHashMap<String, PooledConnectionFactory> pools = new ConcurrentHashMap<>(8);
+
+    /**
+     * @param key identifies the (physical) connection target e.g. URL and user
+     * @param factory the (non-pooling) factory to open connections with
+     * @param config pool configuration (only used when the pool is created)
+     * @return a lease on the pool shared for the given key
+     */
+    static Lease sharedPool(final String key, final ConnectionFactory factory, final Config config) {
+        return new Lease(key, factory, config);
+    }
+
+    private static PooledConnectionFactory acquire(final String key, final ConnectionFactory factory, final Config config) {
+        return pools.compute(key, (k, pool) -> {
+            if (pool == null || pool.closed) pool = new PooledConnectionFactory(k, factory, config);
+            pool.users++;
+            return pool;
+        });
+    }
+
+    private void release() {
+        final boolean[] unused = new boolean[1];
+        pools.computeIfPresent(key, (k, pool) -> {
+            if (pool != this || --users > 0) return pool;
+            unused[0] = true; return null;
+        });
+        if (unused[0]) close();
+    }
+
+    private static volatile ScheduledExecutorService housekeeper;
+
+    private static ScheduledExecutorService housekeeper() {
+        ScheduledExecutorService executor = housekeeper;
+        if (executor == null) {
+            synchronized (PooledConnectionFactory.class) {
+                executor = housekeeper;
+                if (executor == null) {
+                    housekeeper = executor = Executors.newSingleThreadScheduledExecutor(task -> {
+                        final Thread thread = new Thread(task, "arjdbc-pool-housekeeper");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    private final String key;
+    private final ConnectionFactory factory;
+    private final Config config;
+    private int users; // leases held - guarded by the pools (map) lock
+    private volatile boolean configMismatch; // warned (once) about a lease with a different config
+    private ScheduledFuture<?> housekeeping;
+
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger(); // deque's size() is not constant-time
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final Semaphore permits; // bounds handed out (active) connections
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final LongAccumulator maxBorrowNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder validations = new LongAdder();
+    private final LongAdder validationSkips = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile boolean closed;
+
+    PooledConnectionFactory(final String key, final ConnectionFactory factory, final Config config) {
+        this.key = key;
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize);
+
+        if (config.idleTimeout > 0 || config.maxLifetime > 0 || config.minSize > 0 || config.validationInterval > 0) {
+            long interval = 30_000;
+            if (config.idleTimeout > 0) interval = Math.min(interval, Math.max(config.idleTimeout / 2, 1000));
+            if (config.validationInterval > 0) interval = Math.min(interval, Math.max(config.validationInterval, 1000));
+            housekeeping = housekeeper().scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection newConnection() throws SQLException {
+        if (closed) throw new SQLNonTransientConnectionException("connection pool is closed", "08003");
+
+        final long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.checkoutTimeout, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("could not obtain a connection from the pool within " +
+                        config.checkoutTimeout + "ms (max_size: " + config.maxSize + ")", "08001");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted while waiting for a connection", "08001", e);
+        }
+        return borrow(start);
+    }
+
+    /**
+     * Borrows a connection without waiting for one to be returned when the pool is exhausted.
+     * @return a connection or null if none is available (without waiting)
+     * @throws SQLException
+     */
+    Connection tryNewConnection() throws SQLException {
+        if (closed || !permits.tryAcquire()) return null;
+        return borrow(System.nanoTime());
+    }
+
+    private Connection borrow(final long start) throws SQLException {
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (isUsable(pooled)) break;
+                destroy(pooled);
+            }
+            if (pooled == null) pooled = create();
+
+            final long elapsed = System.nanoTime() - start;
+            borrows.increment(); borrowNanos.add(elapsed); maxBorrowNanos.accumulate(elapsed);
+            return pooled.newHandle();
+        }
+        catch (SQLException|RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private boolean isUsable(final PooledConnection pooled) {
+        final long now = System.currentTimeMillis();
+        if (isExpired(pooled, now)) return false;
+        if (pooled.unwrapped && isClosed(pooled)) return false; // closed behind our back
+        if (config.validationTimeout > 0) {
+            if (now - pooled.lastValidatedAt < config.validationWindow) {
+                validationSkips.increment(); return true;
+            }
+            return validate(pooled, now);
+        }
+        return true;
+    }
+
+    private boolean validate(final PooledConnection pooled, final long now) {
+        return validate(pooled, now, config.validationTimeout);
+    }
+
+    private boolean validate(final PooledConnection pooled, final long now, final int timeout) {
+        validations.increment();
+        try {
+            if (pooled.connection.isValid(timeout)) {
+                pooled.lastValidatedAt = now; return true;
+            }
+        }
+        catch (SQLException|AbstractMethodError e) { /* invalid */ }
+        validationFailures.increment();
+        return false;
+    }
+
+    private static boolean isClosed(final PooledConnection pooled) {
+        try {
+            return pooled.connection.isClosed();
+        }
+        catch (SQLException|RuntimeException e) {
+            return true;
+        }
+    }
+
+    private boolean isExpired(final PooledConnection pooled, final long now) {
+        return config.maxLifetime > 0 && now - pooled.createdAt > config.maxLifetime;
+    }
+
+    private PooledConnection create() throws SQLException {
+        final Connection connection = factory.newConnection();
+        if (connection == null) throw new SQLException("Didn't get a connection. Wrong URL?");
+        final PooledConnection pooled;
+        try {
+            pooled = new PooledConnection(this, connection);
+        }
+        catch (SQLException|RuntimeException e) {
+            RubyJdbcConnection.close(connection); throw e;
+        }
+        totalCount.incrementAndGet(); created.increment();
+        return pooled;
+    }
+
+    private void destroy(final PooledConnection pooled) {
+        totalCount.decrementAndGet(); destroyed.increment();
+        RubyJdbcConnection.close(pooled.connection);
+    }
+
+    void release(final PooledConnection pooled) {
+        try {
+            final long now = System.currentTimeMillis();
+            if (closed || pooled.broken || isExpired(pooled, now) || !reset(pooled) || !validateSuspect(pooled, now)) {
+                destroy(pooled);
+            }
+            else {
+                pooled.lastUsedAt = now;
+                idle.offerFirst(pooled); idleCount.incrementAndGet();
+            }
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    private boolean validateSuspect(final PooledConnection pooled, final long now) {
+        if (!pooled.suspect) return true;
+        pooled.suspect = false;
+        // not skipped within the validation window, nor when validation on borrow is disabled
+        return validate(pooled, now, config.validationTimeout > 0 ? config.validationTimeout : Config.DEFAULT_VALIDATION_TIMEOUT);
+    }
+
+    private static boolean reset(final PooledConnection pooled) {
+        final Connection connection = pooled.connection;
+        try {
+            if (connection.isClosed()) return false;
+            if (!connection.getAutoCommit()) {
+                connection.rollback(); connection.setAutoCommit(true);
+            }
+            if (pooled.sessionChanged) {
+                pooled.restoreSession(); pooled.sessionChanged = false;
+            }
+            connection.clearWarnings();
+            return true;
+        }
+        catch (SQLException|RuntimeException|AbstractMethodError e) {
+            return false; // destroyed - rather than handing out a connection in an unknown state
+        }
+    }
+
+    private void housekeep() {
+        final long now = System.currentTimeMillis();
+        for (PooledConnection pooled : idle) {
+            final boolean idleTimedOut = config.idleTimeout > 0 &&
+                    now - pooled.lastUsedAt > config.idleTimeout && totalCount.get() > config.minSize;
+            if ((idleTimedOut || isExpired(pooled, now)) && idle.removeFirstOccurrence(pooled)) {
+                idleCount.decrementAndGet(); evicted.increment();
+                destroy(pooled);
+            }
+            else if (config.validationInterval > 0 && config.validationTimeout > 0 &&
+                     now - pooled.lastValidatedAt > config.validationInterval && idle.removeFirstOccurrence(pooled)) {
+                idleCount.decrementAndGet(); // claimed - can not be borrowed while validating
+                if (validate(pooled, now) && !closed) {
+                    idle.offerLast(pooled); idleCount.incrementAndGet();
+                }
+                else {
+                    destroy(pooled);
+                }
+            }
+        }
+
+        while (!closed && totalCount.get() < config.minSize) {
+            try {
+                final PooledConnection pooled = create();
+                idle.offerLast(pooled); idleCount.incrementAndGet();
+            }
+            catch (SQLException|RuntimeException e) {
+                break; // retried the next time around
+            }
+        }
+    }
+
+    /**
+     * Closes all idle connections, connections in use get closed once returned.
+     */
+    void close() {
+        closed = true;
+        final ScheduledFuture<?> housekeeping = this.housekeeping;
+        if (housekeeping != null) housekeeping.cancel(false);
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroy(pooled);
+        }
+    }
+
+    boolean isClosed() { return closed; }
+
+    ConnectionFactory getFactory() { return factory; }
+
+    Config getConfig() { return config; }
+
+    int getMinSize() { return config.minSize; }
+
+    int getMaxSize() { return config.maxSize; }
+
+    int getActiveCount() { return Math.max(totalCount.get() - idleCount.get(), 0); }
+
+    int getIdleCount() { return idleCount.get(); }
+
+    int getTotalCount() { return totalCount.get(); }
+
+    long getBorrowCount() { return borrows.sum(); }
+
+    long getBorrowNanos() { return borrowNanos.sum(); }
+
+    long getMaxBorrowNanos() { return maxBorrowNanos.get(); }
+
+    long getCreatedCount() { return created.sum(); }
+
+    long getDestroyedCount() { return destroyed.sum(); }
+
+    long getEvictedCount() { return evicted.sum(); }
+
+    long getValidationCount() { return validations.sum(); }
+
+    long getValidationSkipCount() { return validationSkips.sum(); }
+
+    long getValidationFailureCount() { return validationFailures.sum(); }
+
+    long getTimeoutCount() { return timeouts.sum(); }
+
+    /**
+     * Reports a failure of using a connection (handed out by a pool), statements are not
+     * wrapped - a connection that died while executing would otherwise get re-used.
+     * Connection errors mark the connection as broken (closed once returned), any other
+     * (SQL) failure gets the connection validated once returned.
+     * @param connection the connection used, a no-op if not pooled
+     * @param failure the failure
+     */
+    static void failed(final Connection connection, final Throwable failure) {
+        final Handle handle = handle(connection);
+        if (handle != null) handle.failed(failure);
+    }
+
+    /**
+     * Marks a connection (handed out by a pool) as set-up (<code>configure_connection</code>).
+     * @param connection the connection, a no-op if not pooled
+     */
+    static void configured(final Connection connection) {
+        final Handle handle = handle(connection);
+        if (handle != null) handle.pooled.configured = true;
+    }
+
+    /**
+     * @param connection the connection
+     * @return whether the connection (handed out by a pool) has been set-up, false if not pooled
+     */
+    static boolean isConfigured(final Connection connection) {
+        final Handle handle = handle(connection);
+        return handle != null && handle.pooled.configured;
+    }
+
+    private static Handle handle(final Connection connection) {
+        if (connection == null || !Proxy.isProxyClass(connection.getClass())) return null;
+        final InvocationHandler handler = Proxy.getInvocationHandler(connection);
+        return handler instanceof Handle ? (Handle) handler : null;
+    }
+
+    private static boolean isConnectionError(final Throwable failure) {
+        if (failure instanceof SQLNonTransientConnectionException || failure instanceof SQLRecoverableException) {
+            return true;
+        }
+        if (failure instanceof SQLException) {
+            final String sqlState = ((SQLException) failure).getSQLState();
+            return sqlState != null && sqlState.startsWith("08");
+        }
+        return false;
+    }
+
+    /**
+     * A connection's (counted) use of a shared pool, the pool gets acquired (again)
+     * as needed e.g. on reconnect after being released on disconnect.
+     */
+    static final class Lease implements ConnectionFactory {
+
+        private final String key;
+        private final ConnectionFactory factory;
+        private final Config config;
+        private PooledConnectionFactory pool; // null while released
+
+        final Finalizable teardown = this::release; // held here, runtime (internal) finalizers are weak
+
+        Lease(final String key, final ConnectionFactory factory, final Config config) {
+            this.key = key;
+            this.factory = factory;
+            this.config = config;
+        }
+
+        @Override
+        public Connection newConnection() throws SQLException {
+            return pool().newConnection();
+        }
+
+        /**
+         * @return a connection or null if the pool is exhausted
+         * @see PooledConnectionFactory#tryNewConnection()
+         */
+        Connection tryNewConnection() throws SQLException {
+            return pool().tryNewConnection();
+        }
+
+        /**
+         * @return a new (not yet acquired) lease on the same pool
+         */
+        Lease newLease() {
+            return new Lease(key, factory, config);
+        }
+
+        synchronized PooledConnectionFactory pool() {
+            PooledConnectionFactory pool = this.pool;
+            if (pool == null) this.pool = pool = acquire(key, factory, config);
+            return pool;
+        }
+
+        /**
+         * @return the pool, null if released
+         */
+        synchronized PooledConnectionFactory current() { return pool; }
+
+        /**
+         * @return whether the (shared) pool was created with a different configuration, reported once per pool
+         */
+        boolean isConfigMismatch() {
+            final PooledConnectionFactory pool = pool();
+            if (pool.configMismatch || pool.config.equals(config)) return false;
+            return pool.configMismatch = true;
+        }
+
+        synchronized void release() {
+            final PooledConnectionFactory pool = this.pool;
+            if (pool != null) {
+                this.pool = null; pool.release();
+            }
+        }
+
+    }
+
+    /**
+     * A physical connection managed by the pool.
+     */
+    static final class PooledConnection {
+
+        private final PooledConnectionFactory pool;
+        final Connection connection;
+        final long createdAt;
+        volatile long lastUsedAt;
+        volatile long lastValidatedAt;
+        volatile boolean broken; // failed with a connection error
+        volatile boolean suspect; // failed (statement) - validated on release
+        volatile boolean unwrapped; // physical connection handed out (might get closed)
+        volatile boolean configured; // set-up (configure_connection) by a borrower
+        volatile boolean sessionChanged; // a borrower changed the session state (using the JDBC API)
+
+        // initial session state (restored on release)
+        private final int isolation;
+        private final boolean readOnly;
+        private final String catalog;
+        private final String schema; // null if not supported (or not known)
+
+        PooledConnection(final PooledConnectionFactory pool, final Connection connection) throws SQLException {
+            this.pool = pool;
+            this.connection = connection;
+            this.createdAt = this.lastUsedAt = this.lastValidatedAt = System.currentTimeMillis();
+
+            this.isolation = connection.getTransactionIsolation();
+            this.readOnly = connection.isReadOnly();
+            this.catalog = connection.getCatalog();
+            String schema;
+            try {
+                schema = connection.getSchema();
+            }
+            catch (SQLException|AbstractMethodError e) { schema = null; } // JDBC 4.1
+            this.schema = schema;
+        }
+
+        void restoreSession() throws SQLException {
+            if (connection.getTransactionIsolation() != isolation) connection.setTransactionIsolation(isolation);
+            if (connection.isReadOnly() != readOnly) connection.setReadOnly(readOnly);
+            if (catalog != null && !catalog.equals(connection.getCatalog())) connection.setCatalog(catalog);
+            if (schema != null && !schema.equals(connection.getSchema())) connection.setSchema(schema);
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(PooledConnectionFactory.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+
+    }
+
+    /**
+     * The connection (proxy) handed out, a new one on every borrow so that a
+     * (stale) handle can not operate on the connection after being closed.
+     */
+    private static final class Handle implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private volatile boolean closed;
+
+        Handle(final PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final Connection connection = pooled.connection;
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pooled.pool.release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || connection.isClosed();
+                case "unwrap":
+                    // NOTE: the physical connection might get closed (or used) behind our back,
+                    // the pool checks whether it is still open before handing it out again
+                    pooled.unwrapped = true;
+                    if (((Class<?>) args[0]).isInstance(connection)) return connection;
+                    return connection.unwrap((Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(connection) || connection.isWrapperFor((Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + (closed ? "(closed)" : "") + '[' + connection + ']';
+                case "setTransactionIsolation":
+                case "setReadOnly":
+                case "setCatalog":
+                case "setSchema":
+                    pooled.sessionChanged = true; // restored on release
+                    break;
+            }
+
+            if (closed) throw new SQLNonTransientConnectionException("connection is closed", "08003");
+            try {
+                return method.invoke(connection, args);
+            }
+            catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                failed(cause);
+                throw cause;
+            }
+        }
+
+        void failed(final Throwable failure) {
+            if (closed) return; // stale handle - connection might have been borrowed again
+            if (isConnectionError(failure)) pooled.broken = true;
+            else if (failure instanceof SQLException) pooled.suspect = true;
+        }
+
+    }
+
+}
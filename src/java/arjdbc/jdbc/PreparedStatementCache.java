@@ -0,0 +1,135 @@
+package arjdbc.jdbc;
+
+import java.sql.PreparedStatement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jruby.util.ByteList;
+
+/**
+ * A (per connection) LRU cache of prepared statements, keyed by SQL (or rather
+ * the adapter's statement key) plus the result set options used to prepare.
+ * <p>
+ * Cached entries also keep the resolved result columns, so repeated executions
+ * do not need to go through the result set meta-data (and identifier case
+ * conversion) again. Statements get closed on eviction, removal and clear -
+ * the cache is cleared whenever the connection changes.
+ * </p>
+ */
+final class PreparedStatementCache {
+
+    static final int DEFAULT_SIZE = 1000; // same as AR's StatementPool default limit
+
+    static final class Key {
+
+        final ByteList sql;
+        final int resultSetType;
+        final int resultSetConcurrency;
+
+        Key(final ByteList sql, final int resultSetType, final int resultSetConcurrency) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            final Key that = (Key) obj;
+            return resultSetType == that.resultSetType && resultSetConcurrency == that.resultSetConcurrency &&
+                    sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * sql.hashCode() + resultSetType) + resultSetConcurrency;
+        }
+
+    }
+
+    static final class Entry {
+
+        final PreparedStatement statement;
+        RubyJdbcConnection.ColumnData[] columns; // resolved on first (query) execution
+        final BindEncoderChain encoders = new BindEncoderChain(); // resolved on first execution
+
+        Entry(final PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+    }
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private long hits, misses, evictions;
+
+    PreparedStatementCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+                if (size() > PreparedStatementCache.this.maxSize) {
+                    evictions++;
+                    RubyJdbcConnection.close(eldest.getValue().statement);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    synchronized Entry get(final Key key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) misses++;
+        else hits++;
+        return entry;
+    }
+
+    synchronized Entry put(final Key key, final PreparedStatement statement) {
+        final Entry entry = new Entry(statement);
+        final Entry prev = entries.put(new Key(key.sql.dup(), key.resultSetType, key.resultSetConcurrency), entry);
+        if (prev != null) RubyJdbcConnection.close(prev.statement);
+        return entry;
+    }
+
+    synchronized void remove(final Key key, final Entry entry) {
+        if (entries.get(key) == entry) entries.remove(key);
+        RubyJdbcConnection.close(entry.statement);
+    }
+
+    /**
+     * Removes (and closes) statements for the given SQL (statement key).
+     * @param sql the key
+     * @return whether any statement got removed
+     */
+    synchronized boolean remove(final ByteList sql) {
+        boolean removed = false;
+        for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().sql.equals(sql)) {
+                RubyJdbcConnection.close(entry.getValue().statement);
+                it.remove(); removed = true;
+            }
+        }
+        return removed;
+    }
+
+    synchronized void clear() {
+        for (Entry entry : entries.values()) RubyJdbcConnection.close(entry.statement);
+        entries.clear();
+    }
+
+    synchronized int size() { return entries.size(); }
+
+    int maxSize() { return maxSize; }
+
+    synchronized long hits() { return hits; }
+
+    synchronized long misses() { return misses; }
+
+    synchronized long evictions() { return evictions; }
+
+}
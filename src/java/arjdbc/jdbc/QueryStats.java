@@ -0,0 +1,126 @@
+package arjdbc.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jruby.util.ByteList;
+
+import arjdbc.util.SqlFingerprint;
+
+/**
+ * Aggregated (<i>pg_stat_statements</i>-like) statistics per SQL fingerprint, shared by
+ * all connections to the same target.
+ * <p>
+ * The table is bounded, when full the least called tenth of the entries gets evicted
+ * (and counted as such). Recording an already known statement is a map lookup and a few
+ * (contention free) additions, the normalized SQL is only computed for new entries.
+ * </p>
+ * Enabled by default, disabled (in <i>database.yml</i>) using <code>query_stats: false</code>,
+ * the maximum number of entries is set using <code>query_stats_max</code>.
+ *
+ * @see SqlFingerprint
+ */
+public final class QueryStats {
+
+    public static final int DEFAULT_MAX = 1000;
+
+    private static final ConcurrentHashMap<String, QueryStats> stats = new ConcurrentHashMap<>(8);
+
+    /**
+     * @param name identifies the connection target (same as {@link StatementTimings})
+     * @param max maximum number of entries (only used when created)
+     * @return stats shared for the given name
+     */
+    static QueryStats shared(final String name, final int max) {
+        return stats.computeIfAbsent(name, n -> new QueryStats(max));
+    }
+
+    public static final class Entry {
+
+        private final long fingerprint;
+        private final String query; // normalized
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalTime = new LongAdder(); // ns
+        private final LongAccumulator maxTime = new LongAccumulator(Long::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder rowsAffected = new LongAdder();
+
+        Entry(final long fingerprint, final String query) {
+            this.fingerprint = fingerprint;
+            this.query = query;
+        }
+
+        public long getFingerprint() { return fingerprint; }
+
+        public String getQuery() { return query; }
+
+        public long getCalls() { return calls.sum(); }
+
+        public long getTotalTime() { return totalTime.sum(); }
+
+        public long getMaxTime() { return maxTime.get(); }
+
+        public long getRows() { return rows.sum(); }
+
+        public long getRowsAffected() { return rowsAffected.sum(); }
+
+    }
+
+    private final int max;
+    private final ConcurrentHashMap<Long, Entry> entries;
+    private final LongAdder evicted = new LongAdder();
+
+    QueryStats(final int max) {
+        this.max = Math.max(max, 2);
+        this.entries = new ConcurrentHashMap<>(Math.min(this.max, 64));
+    }
+
+    /**
+     * Records an executed statement.
+     * @param sql the SQL as executed
+     * @param backslashEscapes whether the dialect escapes (in string literals) using a backslash
+     * @param nanos elapsed time
+     * @param rows rows returned (fetched)
+     * @param rowsAffected rows inserted, updated or deleted
+     */
+    void record(final ByteList sql, final boolean backslashEscapes, final long nanos, final long rows, final long rowsAffected) {
+        final long fingerprint = SqlFingerprint.fingerprint(sql, backslashEscapes);
+        Entry entry = entries.get(fingerprint);
+        if ( entry == null ) {
+            if ( entries.size() >= max ) evict();
+            final String query = SqlFingerprint.normalize(sql, backslashEscapes).toString();
+            entry = entries.computeIfAbsent(fingerprint, f -> new Entry(f, query));
+        }
+        entry.calls.increment();
+        entry.totalTime.add(nanos);
+        entry.maxTime.accumulate(nanos);
+        if ( rows > 0 ) entry.rows.add(rows);
+        if ( rowsAffected > 0 ) entry.rowsAffected.add(rowsAffected);
+    }
+
+    private synchronized void evict() {
+        if ( entries.size() < max ) return; // evicted concurrently
+        final List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(Entry::getCalls));
+        for ( int i = 0; i < Math.max(sorted.size() / 10, 1); i++ ) {
+            if ( entries.remove(sorted.get(i).fingerprint) != null ) evicted.increment();
+        }
+    }
+
+    public Collection<Entry> getEntries() { return entries.values(); }
+
+    public int getMax() { return max; }
+
+    public long getEvictedCount() { return evicted.sum(); }
+
+    public void reset() {
+        entries.clear(); evicted.reset();
+    }
+
+}
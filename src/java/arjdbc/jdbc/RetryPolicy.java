@@ -0,0 +1,98 @@
+package arjdbc.jdbc;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether (and how) a failed (idempotent) connection operation gets
+ * retried: up to a maximum number of attempts, sleeping an exponential back-off
+ * (with full jitter) in between, classifying failures by their SQLState.
+ * <p>
+ * SQLStates are matched exactly first and then by their class (first 2 chars),
+ * failures with an unknown state are classified by the connection as before
+ * (transient ones are retried, recoverable ones re-connect).
+ * Adapters might provide their own policy by overriding
+ * {@link RubyJdbcConnection#newRetryPolicy(org.jruby.runtime.ThreadContext)}.
+ * </p>
+ */
+public class RetryPolicy {
+
+    public enum Action {
+        /** do not retry */
+        FAIL,
+        /** retry on the same connection */
+        RETRY,
+        /** retry using a new connection */
+        RECONNECT
+    }
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 2;
+    public static final long DEFAULT_BACKOFF = 50; // ms
+    public static final long DEFAULT_MAX_BACKOFF = 5000; // ms
+
+    private static final Map<String, Action> DEFAULT_SQL_STATES = new HashMap<>();
+    static {
+        DEFAULT_SQL_STATES.put("08", Action.RECONNECT); // connection exception
+        DEFAULT_SQL_STATES.put("57P01", Action.RECONNECT); // PostgreSQL admin shutdown
+        DEFAULT_SQL_STATES.put("40001", Action.RETRY); // serialization failure
+        DEFAULT_SQL_STATES.put("40P01", Action.RETRY); // PostgreSQL deadlock detected
+        DEFAULT_SQL_STATES.put("57014", Action.FAIL); // query cancelled
+        DEFAULT_SQL_STATES.put("HYT00", Action.FAIL); // timeout expired
+    }
+
+    private final int maxAttempts;
+    private final long backoff, maxBackoff;
+    private final Map<String, Action> sqlStates;
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF, DEFAULT_MAX_BACKOFF, null);
+    }
+
+    /**
+     * @param maxAttempts maximum number of attempts (including the first one), 1 disables retries
+     * @param backoff the base back-off (in milliseconds) doubled for every retry
+     * @param maxBackoff the maximum back-off (in milliseconds)
+     * @param sqlStates SQLState (or class) classifications, overriding the defaults
+     */
+    public RetryPolicy(final int maxAttempts, final long backoff, final long maxBackoff,
+        final Map<String, Action> sqlStates) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = Math.max(0, backoff);
+        this.maxBackoff = Math.max(this.backoff, maxBackoff);
+        this.sqlStates = new HashMap<>(DEFAULT_SQL_STATES);
+        if ( sqlStates != null ) this.sqlStates.putAll(sqlStates);
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    public long getBackoff() { return backoff; }
+
+    public long getMaxBackoff() { return maxBackoff; }
+
+    /**
+     * @param exception the failure
+     * @return how to proceed, null if not known (the connection decides)
+     */
+    public Action classify(final Exception exception) {
+        if ( ! ( exception instanceof SQLException ) ) return null;
+        final String sqlState = ((SQLException) exception).getSQLState();
+        if ( sqlState == null ) return null;
+
+        final Action action = sqlStates.get(sqlState);
+        if ( action != null || sqlState.length() < 2 ) return action;
+        return sqlStates.get(sqlState.substring(0, 2));
+    }
+
+    /**
+     * @param retry the retry (1 for the first retry)
+     * @return milliseconds to wait before retrying
+     */
+    public long backoffMillis(final int retry) {
+        if ( backoff == 0 ) return 0;
+        final long max = Math.min(maxBackoff, backoff << Math.min(retry - 1, 20));
+        return ThreadLocalRandom.current().nextLong(max + 1); // "full" jitter
+    }
+
+}
@@ -0,0 +1,76 @@
+package arjdbc.jdbc;
+
+import org.jruby.Ruby;
+import org.jruby.RubyArray;
+import org.jruby.RubyHash;
+import org.jruby.RubyString;
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+
+/**
+ * The (shared) shape of row hashes for a result, column name keys are held once
+ * per result and each row is a copy of a template hash with only the values
+ * replaced. Copying the template re-uses the (already computed) key hashes, thus
+ * rows do not need to hash and look-up every column name (and rows built this
+ * way are plain, mutable, Hash instances).
+ * <p>
+ * With duplicate column names (e.g. <code>SELECT a.id, b.id ...</code>) rows get
+ * built as usual - the later value wins.
+ * </p>
+ * NOTE: not thread-safe, meant to be used while processing a result.
+ */
+final class RowShape {
+
+    private final RubyString[] keys;
+    private RubyHash template; // lazy - built for the first row
+    private boolean duplicateKeys;
+
+    RowShape(final RubyString[] keys) {
+        this.keys = keys;
+    }
+
+    int size() { return keys.length; }
+
+    /**
+     * @param context current thread context
+     * @param values the row values, in column order
+     * @return a new row hash
+     */
+    RubyHash newRow(final ThreadContext context, final IRubyObject[] values) {
+        final RubyHash template = template(context);
+        if (template == null) { // duplicate keys
+            final Ruby runtime = context.runtime;
+            final RubyHash row = new RubyHash(runtime, keys.length);
+            for (int i = 0; i < keys.length; i++) row.fastASetCheckString(runtime, keys[i], values[i]);
+            return row;
+        }
+
+        final RubyHash row = template.dupFast(context);
+        int i = 0;
+        for (Object entry : row.directEntrySet()) { // in insertion (column) order
+            ((RubyHash.RubyHashEntry) entry).setValue(values[i++]);
+        }
+        return row;
+    }
+
+    /**
+     * @param context current thread context
+     * @param values the row values, in column order
+     * @return a new row hash
+     */
+    RubyHash newRow(final ThreadContext context, final RubyArray values) {
+        return newRow(context, values.toJavaArrayMaybeUnsafe());
+    }
+
+    private RubyHash template(final ThreadContext context) {
+        if (template == null && !duplicateKeys) {
+            final Ruby runtime = context.runtime;
+            final RubyHash template = new RubyHash(runtime, keys.length);
+            for (RubyString key : keys) template.fastASetCheckString(runtime, key, context.nil);
+            if (template.size() == keys.length) this.template = template;
+            else duplicateKeys = true;
+        }
+        return template;
+    }
+
+}
@@ -31,6 +31,7 @@ import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -46,11 +47,15 @@ import java.sql.Statement;
 import java.sql.Date;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
 import java.sql.SQLTransientException;
 import java.sql.Savepoint;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
@@ -61,9 +66,13 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import arjdbc.util.StringHelper;
+import org.jcodings.Encoding;
+import org.jcodings.specific.UTF8Encoding;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.jruby.Ruby;
@@ -104,8 +113,11 @@ import org.jruby.util.SafePropertyAccessor;
 import org.jruby.util.TypeConverter;
 
 import arjdbc.util.DateTimeUtils;
+import arjdbc.util.LatencyHistogram;
+import arjdbc.util.SqlFingerprint;
 import arjdbc.util.ObjectSupport;
 import arjdbc.util.StringCache;
+import arjdbc.util.StringDedup;
 
 import static arjdbc.jdbc.DataSourceConnectionFactory.*;
 import static arjdbc.util.StringHelper.*;
@@ -118,6 +130,7 @@ import static org.jruby.api.Create.allocArray;
 import static org.jruby.api.Create.newArray;
 import static org.jruby.api.Create.newArrayNoCopy;
 import static org.jruby.api.Create.newEmptyArray;
+import static org.jruby.api.Error.argumentError;
 
 
 /**
@@ -131,6 +144,16 @@ public class RubyJdbcConnection extends RubyObject {
     private static final String[] TABLE_TYPES = new String[] { "TABLE", "VIEW", "SYNONYM" };
 
     private ConnectionFactory connectionFactory;
+    private CircuitBreakerConnectionFactory circuitBreaker; // (shared) when configured
+    private StatementTimings timings; // (shared) per connection target
+    private StatementTimings.Call timedCall; private Thread timedThread; // the call currently being timed
+    private IRubyObject timedSql; private JdbcEvents.Execute executeEvent; // (JFR) for the timed call
+    private long timedRows, timedRowsAffected; // for the timed call (query stats)
+    private QueryStats queryStats; // (shared) null when disabled
+    private RubyArray timedBinds; // for the timed call (slow query log)
+    private long slowQueryThreshold; // ns (0 when disabled)
+    private SlowQueryLog slowQueryLog; // (shared) null when disabled
+    private boolean slowQueryExplain = true;
     private IRubyObject config;
     private IRubyObject adapter; // the AbstractAdapter instance we belong to
     private volatile boolean connected = true;
@@ -141,6 +164,24 @@ public class RubyJdbcConnection extends RubyObject {
     private boolean jndi; // final once set on initialize
     private boolean configureConnection = true; // final once initialized
     private int fetchSize = 0; // 0 = JDBC default
+    private boolean columnarResults; // final once initialized
+    private boolean stringBytes; // final once initialized
+    private Map<String, StringDedup> stringDedups; // column name -> dedup (null unless string_dedup_columns set)
+    private boolean stringDedupAll; // all (character) columns get de-duplicated
+    private volatile ColumnDecoders columnDecoders; // registered on first use
+    private PreparedStatementCache statementCache; // final once initialized
+    private long aliveWindow; // nanos (0 - always validate) final once initialized
+    private volatile long lastUsedAt; // System.nanoTime() of the last successful statement (0 - not connected)
+    private long validations, validationSkips, validationFailures; // active? statistics
+    private final SessionState sessionState = new SessionState(); // tracks the current connection
+    private DialectCapabilities capabilities; // of the current connection (lazy)
+    private int queryTimeout; // seconds (0 - no timeout) for the current call(s)
+    private RetryPolicy retryPolicy; // final once initialized
+    private int retryableCalls; // > 0 when (explicitly) marked retry-able
+    private long retries, retryReconnects, retriesExhausted; // withConnection retry statistics
+    private long retrySkipsNotRetryable, retrySkipsNotIdempotent, retrySkipsInTransaction;
+    private final Set<Statement> runningStatements = ConcurrentHashMap.newKeySet(); // in-flight (cancel-able)
+    private final ArrayList<Statement> callStatements = new ArrayList<>(4); // started within withConnection
 
     protected RubyJdbcConnection(Ruby runtime, RubyClass metaClass) {
         super(runtime, metaClass);
@@ -157,9 +198,12 @@ public class RubyJdbcConnection extends RubyObject {
 
     public static RubyClass createJdbcConnectionClass(final Ruby runtime) {
         var context = runtime.getCurrentContext();
-        return getConnectionAdapters(context).
+        final RubyClass jdbcConnection = getConnectionAdapters(context).
                 defineClassUnder(context, "JdbcConnection", runtime.getObject(), ALLOCATOR).
                 defineMethods(context, RubyJdbcConnection.class);
+        StreamingResult.createStreamingResultClass(context, jdbcConnection);
+        AsyncQuery.createAsyncQueryClass(context, jdbcConnection);
+        return jdbcConnection;
     }
 
     public static RubyClass getJdbcConnection(ThreadContext context) {
@@ -246,8 +290,8 @@ public class RubyJdbcConnection extends RubyObject {
 
     @JRubyMethod(name = "transaction_isolation", alias = "get_transaction_isolation")
     public IRubyObject get_transaction_isolation(final ThreadContext context) {
-        return withConnection(context, connection -> {
-            final int level = connection.getTransactionIsolation();
+        return withConnection(context, true, connection -> {
+            final int level = sessionState.getTransactionIsolation(connection);
             final String isolationSymbol = formatTransactionIsolationLevel(level);
             if ( isolationSymbol == null ) return context.nil;
             return context.runtime.newSymbol(isolationSymbol);
@@ -265,7 +309,7 @@ public class RubyJdbcConnection extends RubyObject {
                 level = mapTransactionIsolationLevel(isolation);
             }
 
-            connection.setTransactionIsolation(level);
+            sessionState.setTransactionIsolation(connection, level);
 
             final String isolationSymbol = formatTransactionIsolationLevel(level);
             if ( isolationSymbol == null ) return context.nil;
@@ -317,7 +361,7 @@ public class RubyJdbcConnection extends RubyObject {
         final IRubyObject[] args) throws SQLException {
         final IRubyObject isolation = args.length > 0 ? args[0] : null;
 
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final DatabaseMetaData metaData = connection.getMetaData();
             final boolean supported;
             if ( isolation != null && ! isolation.isNil() ) {
@@ -335,7 +379,7 @@ public class RubyJdbcConnection extends RubyObject {
     @JRubyMethod(name = {"begin", "transaction"}, required = 1) // optional isolation argument for AR-4.0
     public IRubyObject begin(final ThreadContext context, final IRubyObject isolation) {
         try { // handleException == false so we can handle setTXIsolation
-            return withConnection(context, false, connection -> beginTransaction(context, connection, isolation == context.nil ? null : isolation));
+            return doWithConnection(context, false, true, connection -> beginTransaction(context, connection, isolation == context.nil ? null : isolation));
         } catch (SQLException e) {
             return handleException(context, e);
         }
@@ -344,7 +388,7 @@ public class RubyJdbcConnection extends RubyObject {
     @JRubyMethod(name = {"begin", "transaction"}) // optional isolation argument for AR-4.0
     public IRubyObject begin(final ThreadContext context) {
         try { // handleException == false so we can handle setTXIsolation
-            return withConnection(context, false, connection -> beginTransaction(context, connection, null));
+            return doWithConnection(context, false, true, connection -> beginTransaction(context, connection, null));
         } catch (SQLException e) {
             return handleException(context, e);
         }
@@ -355,7 +399,7 @@ public class RubyJdbcConnection extends RubyObject {
         if ( isolation != null ) {
             setTransactionIsolation(context, connection, isolation);
         }
-        if ( connection.getAutoCommit() ) connection.setAutoCommit(false);
+        sessionState.setAutoCommit(connection, false);
         return context.nil;
     }
 
@@ -363,7 +407,7 @@ public class RubyJdbcConnection extends RubyObject {
         final IRubyObject isolation) throws SQLException {
         final int level = mapTransactionIsolationLevel(isolation);
         try {
-            connection.setTransactionIsolation(level);
+            sessionState.setTransactionIsolation(connection, level);
         }
         catch (SQLException e) {
             RubyClass txError = ActiveRecord(context).getClass(context, "TransactionIsolationError");
@@ -376,14 +420,14 @@ public class RubyJdbcConnection extends RubyObject {
     public IRubyObject commit(final ThreadContext context) {
         try {
             final Connection connection = getConnectionInternal(true);
-            if ( ! connection.getAutoCommit() ) {
+            if ( ! sessionState.getAutoCommit(connection) ) {
                 try {
                     connection.commit();
                     resetSavepoints(context, connection); // if any
                     return context.runtime.newBoolean(true);
                 }
                 finally {
-                    connection.setAutoCommit(true);
+                    sessionState.setAutoCommit(connection, true);
                 }
             }
             return context.nil;
@@ -397,13 +441,13 @@ public class RubyJdbcConnection extends RubyObject {
     public IRubyObject rollback(final ThreadContext context) {
         try {
             final Connection connection = getConnectionInternal(true);
-            if ( ! connection.getAutoCommit() ) {
+            if ( ! sessionState.getAutoCommit(connection) ) {
                 try {
                     connection.rollback();
                     resetSavepoints(context, connection); // if any
                     return context.tru;
                 } finally {
-                    connection.setAutoCommit(true);
+                    sessionState.setAutoCommit(connection, true);
                 }
             }
             return context.nil;
@@ -415,10 +459,9 @@ public class RubyJdbcConnection extends RubyObject {
 
     @JRubyMethod(name = "supports_savepoints?")
     public IRubyObject supports_savepoints_p(final ThreadContext context) throws SQLException {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
-            final DatabaseMetaData metaData = connection.getMetaData();
-            return context.runtime.newBoolean( metaData.supportsSavepoints() );
-        });
+        return withConnection(context, true, (Callable<IRubyObject>) connection ->
+            context.runtime.newBoolean( getCapabilities(connection).supportsSavepoints() )
+        );
     }
 
     @JRubyMethod(name = "create_savepoint")  // not used
@@ -430,7 +473,7 @@ public class RubyJdbcConnection extends RubyObject {
     public IRubyObject create_savepoint(final ThreadContext context, IRubyObject name) {
         try {
             final Connection connection = getConnectionInternal(true);
-            connection.setAutoCommit(false);
+            sessionState.setAutoCommit(connection, false);
 
             final Savepoint savepoint ;
             // NOTE: this will auto-start a DB transaction even invoked outside
@@ -579,6 +622,36 @@ public class RubyJdbcConnection extends RubyObject {
         if (jdbcFetchSize != context.nil) {
             this.fetchSize = toInt(context, jdbcFetchSize);
         }
+
+        value = getConfigValue(context, "columnar_results");
+        this.columnarResults = value != context.nil && value != context.fals;
+
+        value = getConfigValue(context, "jdbc_string_bytes");
+        this.stringBytes = value == context.nil ? supportsStringBytes() : value != context.fals;
+
+        value = getConfigValue(context, "string_dedup_columns");
+        if (value == context.tru) {
+            this.stringDedups = new HashMap<>(); this.stringDedupAll = true;
+        }
+        else if (value instanceof RubyArray) {
+            final RubyArray names = (RubyArray) value;
+            this.stringDedups = new HashMap<>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                stringDedups.put(names.eltInternal(i).toString(), new StringDedup());
+            }
+        }
+
+        value = getConfigValue(context, "connection_alive_window");
+        if (value != context.nil) this.aliveWindow = toMillis(context, value) * 1_000_000;
+
+        value = getConfigValue(context, "query_timeout");
+        if (value != context.nil) this.queryTimeout = toSeconds(context, value);
+
+        this.retryPolicy = newRetryPolicy(context);
+
+        value = getConfigValue(context, "statement_limit");
+        final int statementLimit = value == context.nil ? 0 : toInt(context, value.callMethod(context, "to_i"));
+        this.statementCache = new PreparedStatementCache(statementLimit > 0 ? statementLimit : PreparedStatementCache.DEFAULT_SIZE);
     }
 
     @JRubyMethod(name = "adapter")
@@ -597,6 +670,179 @@ public class RubyJdbcConnection extends RubyObject {
         return factory;
     }
 
+    /**
+     * @return (built-in) connection pool statistics, nil when not using a pool (<code>jdbc_pool: true</code>)
+     */
+    @JRubyMethod(name = "connection_pool_stats")
+    public IRubyObject connection_pool_stats(final ThreadContext context) {
+        if ( ! ( connectionFactory instanceof PooledConnectionFactory.Lease ) ) return context.nil;
+        final PooledConnectionFactory pool = ((PooledConnectionFactory.Lease) connectionFactory).current();
+        if ( pool == null ) return context.nil; // released (disconnected)
+
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        stats.fastASet(runtime.newSymbol("min_size"), runtime.newFixnum(pool.getMinSize()));
+        stats.fastASet(runtime.newSymbol("max_size"), runtime.newFixnum(pool.getMaxSize()));
+        stats.fastASet(runtime.newSymbol("active"), runtime.newFixnum(pool.getActiveCount()));
+        stats.fastASet(runtime.newSymbol("idle"), runtime.newFixnum(pool.getIdleCount()));
+        stats.fastASet(runtime.newSymbol("total"), runtime.newFixnum(pool.getTotalCount()));
+        stats.fastASet(runtime.newSymbol("borrows"), runtime.newFixnum(pool.getBorrowCount()));
+        stats.fastASet(runtime.newSymbol("borrow_time"), runtime.newFloat(pool.getBorrowNanos() / 1_000_000_000.0));
+        stats.fastASet(runtime.newSymbol("max_borrow_time"), runtime.newFloat(pool.getMaxBorrowNanos() / 1_000_000_000.0));
+        stats.fastASet(runtime.newSymbol("created"), runtime.newFixnum(pool.getCreatedCount()));
+        stats.fastASet(runtime.newSymbol("destroyed"), runtime.newFixnum(pool.getDestroyedCount()));
+        stats.fastASet(runtime.newSymbol("evicted"), runtime.newFixnum(pool.getEvictedCount()));
+        stats.fastASet(runtime.newSymbol("validations"), runtime.newFixnum(pool.getValidationCount()));
+        stats.fastASet(runtime.newSymbol("validation_skips"), runtime.newFixnum(pool.getValidationSkipCount()));
+        stats.fastASet(runtime.newSymbol("validation_failures"), runtime.newFixnum(pool.getValidationFailureCount()));
+        stats.fastASet(runtime.newSymbol("timeouts"), runtime.newFixnum(pool.getTimeoutCount()));
+        return stats;
+    }
+
+    /**
+     * @return (connect) circuit breaker statistics, nil when not using a breaker (<code>jdbc_circuit_breaker: true</code>)
+     */
+    @JRubyMethod(name = "connection_circuit_breaker_stats")
+    public IRubyObject connection_circuit_breaker_stats(final ThreadContext context) {
+        final CircuitBreakerConnectionFactory breaker = this.circuitBreaker;
+        if ( breaker == null ) return context.nil;
+
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        stats.fastASet(runtime.newSymbol("state"), runtime.newSymbol(breaker.getState().name().toLowerCase(Locale.ENGLISH)));
+        stats.fastASet(runtime.newSymbol("state_changed_at"), RubyTime.newTime(runtime, breaker.getStateChangedAt()));
+        stats.fastASet(runtime.newSymbol("failure_threshold"), runtime.newFixnum(breaker.getFailureThreshold()));
+        stats.fastASet(runtime.newSymbol("cooldown"), runtime.newFloat(breaker.getCooldown() / 1000.0));
+        stats.fastASet(runtime.newSymbol("consecutive_failures"), runtime.newFixnum(breaker.getConsecutiveFailures()));
+        stats.fastASet(runtime.newSymbol("failures"), runtime.newFixnum(breaker.getFailureCount()));
+        stats.fastASet(runtime.newSymbol("rejected"), runtime.newFixnum(breaker.getRejectedCount()));
+        stats.fastASet(runtime.newSymbol("opened"), runtime.newFixnum(breaker.getOpenedCount()));
+        stats.fastASet(runtime.newSymbol("half_opened"), runtime.newFixnum(breaker.getHalfOpenedCount()));
+        stats.fastASet(runtime.newSymbol("closed"), runtime.newFixnum(breaker.getClosedCount()));
+        return stats;
+    }
+
+    /**
+     * Statement timings (shared by connections to the same database), per call type and phase :
+     * <code>{ prepared_query: { execute: { count: 10, mean: 0.001, p50: 0.0009, ... }, fetch: { ... } } }</code>
+     * times are in seconds.
+     * @param context
+     * @return timings
+     * @see StatementTimings
+     */
+    @JRubyMethod(name = "stats")
+    public IRubyObject stats(final ThreadContext context) {
+        final StatementTimings timings = getTimings();
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        for ( StatementTimings.Call call : StatementTimings.Call.values() ) {
+            final RubyHash phases = RubyHash.newHash(runtime);
+            for ( StatementTimings.Phase phase : StatementTimings.Phase.values() ) {
+                final LatencyHistogram histogram = timings.get(call, phase);
+                if ( histogram.getCount() == 0 ) continue;
+                final RubyHash values = RubyHash.newHash(runtime);
+                values.fastASet(runtime.newSymbol("count"), runtime.newFixnum(histogram.getCount()));
+                values.fastASet(runtime.newSymbol("total"), runtime.newFloat(histogram.getSum() / 1e9));
+                values.fastASet(runtime.newSymbol("mean"), runtime.newFloat(histogram.getMean() / 1e9));
+                values.fastASet(runtime.newSymbol("p50"), runtime.newFloat(histogram.getPercentile(50) / 1e9));
+                values.fastASet(runtime.newSymbol("p90"), runtime.newFloat(histogram.getPercentile(90) / 1e9));
+                values.fastASet(runtime.newSymbol("p99"), runtime.newFloat(histogram.getPercentile(99) / 1e9));
+                values.fastASet(runtime.newSymbol("max"), runtime.newFloat(histogram.getMax() / 1e9));
+                phases.fastASet(runtime.newSymbol(phase.name().toLowerCase(Locale.ENGLISH)), values);
+            }
+            if ( ! phases.isEmpty() ) stats.fastASet(runtime.newSymbol(call.name().toLowerCase(Locale.ENGLISH)), phases);
+        }
+        return stats;
+    }
+
+    @JRubyMethod(name = "reset_stats")
+    public IRubyObject reset_stats(final ThreadContext context) {
+        getTimings().reset();
+        return context.nil;
+    }
+
+    /**
+     * Aggregated statistics per (normalized) statement, shared by connections to the same database,
+     * ordered by total time : <code>[ { fingerprint: '...', query: 'select * from users where id = ?',
+     * calls: 10, total_time: 0.01, mean_time: 0.001, max_time: 0.005, rows: 10, rows_affected: 0 }, ... ]</code>
+     * times are in seconds.
+     * @param context
+     * @return array of hashes (empty when <code>query_stats: false</code>)
+     * @see QueryStats
+     */
+    @JRubyMethod(name = "query_stats")
+    public IRubyObject query_stats(final ThreadContext context) {
+        final Ruby runtime = context.runtime;
+        if ( queryStats == null ) return newEmptyArray(context);
+
+        final List<QueryStats.Entry> entries = new ArrayList<>(queryStats.getEntries());
+        entries.sort((e1, e2) -> Long.compare(e2.getTotalTime(), e1.getTotalTime()));
+        final RubyArray stats = RubyArray.newArray(runtime, entries.size());
+        for ( QueryStats.Entry entry : entries ) {
+            final long calls = entry.getCalls();
+            final RubyHash hash = RubyHash.newHash(runtime);
+            hash.fastASet(runtime.newSymbol("fingerprint"), runtime.newString(Long.toHexString(entry.getFingerprint())));
+            hash.fastASet(runtime.newSymbol("query"), RubyString.newUnicodeString(runtime, entry.getQuery()));
+            hash.fastASet(runtime.newSymbol("calls"), runtime.newFixnum(calls));
+            hash.fastASet(runtime.newSymbol("total_time"), runtime.newFloat(entry.getTotalTime() / 1e9));
+            hash.fastASet(runtime.newSymbol("mean_time"), runtime.newFloat(calls == 0 ? 0 : entry.getTotalTime() / 1e9 / calls));
+            hash.fastASet(runtime.newSymbol("max_time"), runtime.newFloat(entry.getMaxTime() / 1e9));
+            hash.fastASet(runtime.newSymbol("rows"), runtime.newFixnum(entry.getRows()));
+            hash.fastASet(runtime.newSymbol("rows_affected"), runtime.newFixnum(entry.getRowsAffected()));
+            stats.append(context, hash);
+        }
+        return stats;
+    }
+
+    @JRubyMethod(name = "reset_query_stats")
+    public IRubyObject reset_query_stats(final ThreadContext context) {
+        if ( queryStats != null ) queryStats.reset();
+        return context.nil;
+    }
+
+    /**
+     * Statements that took longer than <code>slow_query_threshold</code> (shared by connections to the
+     * same database), newest first : <code>[ { sql: 'SELECT ...', binds: [ '1' ], elapsed: 1.2,
+     * at: Time, call: :prepared_query, fingerprint: '...', failed: false, plan: '...' }, ... ]</code>
+     * the EXPLAIN plan is filled in (asynchronously) where supported, elapsed time is in seconds.
+     * @param context
+     * @return array of hashes (empty when not configured)
+     * @see SlowQueryLog
+     */
+    @JRubyMethod(name = "slow_queries")
+    public IRubyObject slow_queries(final ThreadContext context) {
+        final Ruby runtime = context.runtime;
+        if ( slowQueryLog == null ) return newEmptyArray(context);
+
+        final List<SlowQueryLog.Entry> entries = slowQueryLog.getEntries();
+        final RubyArray queries = RubyArray.newArray(runtime, entries.size());
+        for ( SlowQueryLog.Entry entry : entries ) {
+            final RubyHash hash = RubyHash.newHash(runtime);
+            hash.fastASet(runtime.newSymbol("sql"), RubyString.newUnicodeString(runtime, entry.getSql()));
+            final String[] binds = entry.getBinds();
+            final RubyArray bindValues = RubyArray.newArray(runtime, binds == null ? 0 : binds.length);
+            if ( binds != null ) {
+                for ( String bind : binds ) bindValues.append(context, RubyString.newUnicodeString(runtime, bind));
+            }
+            hash.fastASet(runtime.newSymbol("binds"), bindValues);
+            hash.fastASet(runtime.newSymbol("elapsed"), runtime.newFloat(entry.getElapsed() / 1e9));
+            hash.fastASet(runtime.newSymbol("at"), RubyTime.newTime(runtime, entry.getAt()));
+            hash.fastASet(runtime.newSymbol("call"), runtime.newSymbol(entry.getCall()));
+            hash.fastASet(runtime.newSymbol("fingerprint"), runtime.newString(Long.toHexString(entry.getFingerprint())));
+            hash.fastASet(runtime.newSymbol("failed"), runtime.newBoolean(entry.isFailed()));
+            final String plan = entry.getPlan();
+            hash.fastASet(runtime.newSymbol("plan"), plan == null ? context.nil : RubyString.newUnicodeString(runtime, plan));
+            queries.append(context, hash);
+        }
+        return queries;
+    }
+
+    @JRubyMethod(name = "clear_slow_queries")
+    public IRubyObject clear_slow_queries(final ThreadContext context) {
+        if ( slowQueryLog != null ) slowQueryLog.clear();
+        return context.nil;
+    }
+
     private void configureConnection() {
         if ( ! configureConnection ) return; // return false;
 
@@ -616,7 +862,9 @@ public class RubyJdbcConnection extends RubyObject {
 
     @JRubyMethod(name = "jdbc_connection", alias = "connection")
     public final IRubyObject connection(final ThreadContext context) {
-        return convertJavaToRuby( connectionImpl(context) );
+        final Connection connection = connectionImpl(context);
+        sessionState.invalidateAll(); // might get changed from Ruby
+        return convertJavaToRuby( connection );
     }
 
     @JRubyMethod(name = "jdbc_connection", alias = "connection", required = 1)
@@ -625,6 +873,7 @@ public class RubyJdbcConnection extends RubyObject {
             return connection(context);
         }
         Connection connection = connectionImpl(context);
+        sessionState.invalidateAll(); // might get changed from Ruby
         try {
             if ( connection.isWrapperFor(Connection.class) ) {
                 return convertJavaToRuby( connection.unwrap(Connection.class) );
@@ -662,7 +911,129 @@ public class RubyJdbcConnection extends RubyObject {
         }
         final Connection connection = getConnection(false);
         if ( connection == null ) return context.fals; // unlikely
-        return context.runtime.newBoolean( isConnectionValid(context, connection) );
+        if ( isWithinAliveWindow() ) {
+            validationSkips++; return context.tru; // recently used - no need to hit the driver
+        }
+        return context.runtime.newBoolean( validateConnection(context, connection) );
+    }
+
+    /**
+     * @return whether the connection completed a statement within the (configured) <code>connection_alive_window</code>
+     */
+    protected final boolean isWithinAliveWindow() {
+        final long lastUsedAt = this.lastUsedAt;
+        return aliveWindow > 0 && lastUsedAt != 0 && System.nanoTime() - lastUsedAt < aliveWindow;
+    }
+
+    private boolean validateConnection(final ThreadContext context, final Connection connection) {
+        validations++;
+        if ( isConnectionValid(context, connection) ) {
+            lastUsedAt = System.nanoTime(); return true;
+        }
+        validationFailures++; return false;
+    }
+
+    @JRubyMethod(name = "connection_validation_stats")
+    public IRubyObject connection_validation_stats(final ThreadContext context) {
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        stats.fastASet(runtime.newSymbol("validations"), runtime.newFixnum(validations));
+        stats.fastASet(runtime.newSymbol("skips"), runtime.newFixnum(validationSkips));
+        stats.fastASet(runtime.newSymbol("failures"), runtime.newFixnum(validationFailures));
+        return stats;
+    }
+
+    /**
+     * Marks statements executed within the block as safe to be retried (idempotent),
+     * statements other than reads are otherwise not retried on failures.
+     * @param context
+     * @param block
+     * @return the block's result
+     */
+    @JRubyMethod(name = "retryable")
+    public IRubyObject retryable(final ThreadContext context, final Block block) {
+        retryableCalls++;
+        try {
+            return block.yield(context, context.nil);
+        }
+        finally {
+            retryableCalls--;
+        }
+    }
+
+    @JRubyMethod(name = "connection_retry_stats")
+    public IRubyObject connection_retry_stats(final ThreadContext context) {
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        stats.fastASet(runtime.newSymbol("max_attempts"), runtime.newFixnum(getRetryPolicy().getMaxAttempts()));
+        stats.fastASet(runtime.newSymbol("retries"), runtime.newFixnum(retries));
+        stats.fastASet(runtime.newSymbol("reconnects"), runtime.newFixnum(retryReconnects));
+        stats.fastASet(runtime.newSymbol("exhausted"), runtime.newFixnum(retriesExhausted));
+        stats.fastASet(runtime.newSymbol("not_retryable"), runtime.newFixnum(retrySkipsNotRetryable));
+        stats.fastASet(runtime.newSymbol("not_idempotent"), runtime.newFixnum(retrySkipsNotIdempotent));
+        stats.fastASet(runtime.newSymbol("in_transaction"), runtime.newFixnum(retrySkipsInTransaction));
+        return stats;
+    }
+
+    /**
+     * @param context
+     * @return the query timeout (in seconds) statements are executed with, nil if none
+     */
+    @JRubyMethod(name = "query_timeout")
+    public IRubyObject query_timeout(final ThreadContext context) {
+        return queryTimeout > 0 ? context.runtime.newFixnum(queryTimeout) : context.nil;
+    }
+
+    /**
+     * Sets the (per-connection) query timeout, in seconds (nil or 0 for no timeout).
+     * @param context
+     * @param seconds
+     * @return seconds
+     */
+    @JRubyMethod(name = "query_timeout=")
+    public IRubyObject set_query_timeout(final ThreadContext context, final IRubyObject seconds) {
+        this.queryTimeout = toSeconds(context, seconds);
+        return seconds;
+    }
+
+    /**
+     * Executes statements within the given block with a (different) query timeout.
+     * @param context
+     * @param seconds the timeout (nil or 0 for no timeout)
+     * @param block
+     * @return the block's result
+     */
+    @JRubyMethod(name = "with_query_timeout")
+    public IRubyObject with_query_timeout(final ThreadContext context, final IRubyObject seconds, final Block block) {
+        final int previous = queryTimeout;
+        queryTimeout = toSeconds(context, seconds);
+        try {
+            return block.yield(context, seconds);
+        }
+        finally {
+            queryTimeout = previous;
+        }
+    }
+
+    /**
+     * Cancels statements currently being executed (or read from) for this connection,
+     * meant to be called from another thread than the one waiting on the query.
+     * NOTE: whether (and how fast) a statement gets cancelled depends on the driver.
+     * @param context
+     * @return the number of statements cancelled
+     */
+    @JRubyMethod(name = "cancel_running_query")
+    public IRubyObject cancel_running_query(final ThreadContext context) {
+        int cancelled = 0;
+        for ( final Statement statement : runningStatements ) {
+            try {
+                statement.cancel(); cancelled++;
+            }
+            catch (SQLException|RuntimeException e) { // statement might have completed (closed)
+                debugMessage(context.runtime, "failed to cancel statement: ", e);
+            }
+        }
+        return context.runtime.newFixnum(cancelled);
     }
 
     @JRubyMethod(name = "really_valid?")
@@ -675,13 +1046,16 @@ public class RubyJdbcConnection extends RubyObject {
     @JRubyMethod(name = "disconnect!")
     public synchronized IRubyObject disconnect(final ThreadContext context) {
         setConnection(null); connected = false;
+        if ( connectionFactory instanceof PooledConnectionFactory.Lease ) {
+            ((PooledConnectionFactory.Lease) connectionFactory).release(); // re-acquired on reconnect
+        }
         return context.nil;
     }
 
     @JRubyMethod(name = "reconnect!")
     public synchronized IRubyObject reconnect(final ThreadContext context) {
         try {
-            connectImpl( ! lazy ); connected = true;
+            reconnectImpl( ! lazy, null ); connected = true;
         }
         catch (SQLException e) {
             debugStackTrace(context, e);
@@ -690,11 +1064,30 @@ public class RubyJdbcConnection extends RubyObject {
         return context.nil;
     }
 
+    private void reconnectImpl(final boolean forceConnection, final Exception reason) throws SQLException {
+        final JdbcEvents.Reconnect event = new JdbcEvents.Reconnect();
+        event.begin();
+        try {
+            connectImpl(forceConnection);
+            event.success = true;
+        }
+        finally {
+            if ( event.shouldCommit() ) {
+                event.database = getTimings().getName();
+                event.reason = reason == null ? "reconnect!" : reason.toString();
+                event.commit();
+            }
+        }
+    }
+
     private void connectImpl(final boolean forceConnection) throws SQLException {
+        // return the current connection to the (built-in) pool first, might be the last one available
+        if ( connectionFactory instanceof PooledConnectionFactory.Lease ) setConnection(null);
         setConnection( forceConnection ? newConnection() : null );
         if (forceConnection) {
             if (getConnectionImpl() == null) throw new SQLException("Didn't get a connection. Wrong URL?");
             configureConnection();
+            PooledConnectionFactory.configured(getConnectionImpl()); // usable for async queries
         }
     }
 
@@ -703,7 +1096,7 @@ public class RubyJdbcConnection extends RubyObject {
         try {
         final Connection connection = getConnectionInternal(false);
             if (connection != null) {
-                return context.runtime.newBoolean(connection.isReadOnly());
+                return context.runtime.newBoolean(sessionState.isReadOnly(connection));
             }
         } catch (SQLException e) {
             return handleException(context, e);
@@ -715,8 +1108,8 @@ public class RubyJdbcConnection extends RubyObject {
     public IRubyObject set_read_only(final ThreadContext context, final IRubyObject flag) {
         try {
             final Connection connection = getConnectionInternal(true);
-            connection.setReadOnly( flag.isTrue() );
-            return context.runtime.newBoolean( connection.isReadOnly() );
+            sessionState.setReadOnly(connection, flag.isTrue());
+            return context.runtime.newBoolean( sessionState.isReadOnly(connection) );
         } catch (SQLException e) {
             return handleException(context, e);
         }
@@ -776,8 +1169,8 @@ public class RubyJdbcConnection extends RubyObject {
 
     @JRubyMethod(name = "database_name")
     public IRubyObject database_name(final ThreadContext context) {
-        return withConnection(context, connection -> {
-            String name = connection.getCatalog();
+        return withConnection(context, true, connection -> {
+            String name = sessionState.getCatalog(connection);
             if ( name == null ) {
                 name = connection.getMetaData().getUserName();
                 if ( name == null ) return context.nil;
@@ -789,15 +1182,18 @@ public class RubyJdbcConnection extends RubyObject {
     @JRubyMethod(name = "execute", required = 1)
     public IRubyObject execute(final ThreadContext context, final IRubyObject sql) {
         final String query = sqlString(sql);
-        return withConnection(context, connection -> {
+        return withConnection(context, StatementTimings.Call.QUERY, sql, isReadQuery(sql), connection -> {
             Statement statement = null;
             try {
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
 
                 // For DBs that do support multiple statements, lets return the last result set
                 // to be consistent with AR
+                final long start = executeStart();
                 boolean hasResultSet = doExecute(statement, query);
+                executeEnd(start);
                 int updateCount = statement.getUpdateCount();
+                rowsAffected(updateCount);
 
                 IRubyObject result = context.nil; // If no results, return nil
                 ResultSet resultSet;
@@ -836,6 +1232,7 @@ public class RubyJdbcConnection extends RubyObject {
     protected Statement createStatement(final ThreadContext context, final Connection connection)
         throws SQLException {
         final Statement statement = connection.createStatement();
+        sessionState.invalidate(); // (raw) SQL might change the session e.g. USE or SET ...
         IRubyObject escapeProcessing = getConfigValue(context, "statement_escape_processing");
         // NOTE: disable (driver) escape processing by default, it's not really
         // needed for AR statements ... if users need it they might configure :
@@ -892,18 +1289,20 @@ public class RubyJdbcConnection extends RubyObject {
      */
     @JRubyMethod(name = "execute_insert_pk", required = 2)
     public IRubyObject execute_insert_pk(final ThreadContext context, final IRubyObject sql, final IRubyObject pk) {
-        return withConnection(context, connection -> {
+        return withConnection(context, StatementTimings.Call.INSERT, sql, false, connection -> {
             Statement statement = null;
             final String query = sqlString(sql);
             try {
 
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
 
+                final long start = executeStart();
                 if (pk == context.nil || pk == context.fals || !supportsGeneratedKeys(connection)) {
-                    statement.executeUpdate(query, Statement.RETURN_GENERATED_KEYS);
+                    rowsAffected(statement.executeUpdate(query, Statement.RETURN_GENERATED_KEYS));
                 } else {
-                    statement.executeUpdate(query, createStatementPk(pk));
+                    rowsAffected(statement.executeUpdate(query, createStatementPk(pk)));
                 }
+                executeEnd(start);
 
                 return mapGeneratedKeys(context, connection, statement);
             } catch (final SQLException e) {
@@ -933,18 +1332,20 @@ public class RubyJdbcConnection extends RubyObject {
     @JRubyMethod(name = "execute_insert_pk", required = 3)
     public IRubyObject execute_insert_pk(final ThreadContext context, final IRubyObject sql, final IRubyObject binds,
                                          final IRubyObject pk) {
-        return withConnection(context, connection -> {
+        return withConnection(context, StatementTimings.Call.INSERT, sql, false, connection -> {
             PreparedStatement statement = null;
             final String query = sqlString(sql);
             try {
                 if (pk == context.nil || pk == context.fals || !supportsGeneratedKeys(connection)) {
-                    statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+                    statement = startStatement(connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS));
                 } else {
-                    statement = connection.prepareStatement(query, createStatementPk(pk));
+                    statement = startStatement(connection.prepareStatement(query, createStatementPk(pk)));
                 }
 
                 setStatementParameters(context, connection, statement, (RubyArray) binds);
-                statement.executeUpdate();
+                final long start = executeStart();
+                rowsAffected(statement.executeUpdate());
+                executeEnd(start);
                 return mapGeneratedKeys(context, connection, statement);
             } catch (final SQLException e) {
                 debugErrorSQL(context, query);
@@ -970,14 +1371,17 @@ public class RubyJdbcConnection extends RubyObject {
      */
     @JRubyMethod(name = {"execute_update", "execute_delete"}, required = 1)
     public IRubyObject execute_update(final ThreadContext context, final IRubyObject sql) {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, StatementTimings.Call.UPDATE, sql, false, (Callable<IRubyObject>) connection -> {
             Statement statement = null;
             final String query = sqlString(sql);
 
             try {
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
 
+                final long start = executeStart();
                 final int rowCount = statement.executeUpdate(query);
+                executeEnd(start);
+                rowsAffected(rowCount);
                 return context.runtime.newFixnum(rowCount);
             } catch (final SQLException e) {
                 debugErrorSQL(context, query);
@@ -999,13 +1403,16 @@ public class RubyJdbcConnection extends RubyObject {
      */
     @JRubyMethod(name = {"execute_prepared_update", "execute_prepared_delete"}, required = 2)
     public IRubyObject execute_prepared_update(final ThreadContext context, final IRubyObject sql, final IRubyObject binds) {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, StatementTimings.Call.UPDATE, sql, false, (Callable<IRubyObject>) connection -> {
             PreparedStatement statement = null;
             final String query = sqlString(sql);
             try {
-                statement = connection.prepareStatement(query);
+                statement = startStatement(connection.prepareStatement(query));
                 setStatementParameters(context, connection, statement, (RubyArray) binds);
+                final long start = executeStart();
                 final int rowCount = statement.executeUpdate();
+                executeEnd(start);
+                rowsAffected(rowCount);
                 return context.runtime.newFixnum(rowCount);
             } catch (final SQLException e) {
                 debugErrorSQL(context, query);
@@ -1016,6 +1423,97 @@ public class RubyJdbcConnection extends RubyObject {
         });
     }
 
+    /**
+     * Executes an INSERT/UPDATE/DELETE SQL as a (JDBC) batch, a single prepared statement
+     * gets the parameters of every row added before the batch is executed (in one go).
+     * @param context
+     * @param sql
+     * @param bindsList RubyArray of binds (arrays) - one per row
+     * @return RubyArray of affected row counts (per row), drivers might report -2 (<code>Statement.SUCCESS_NO_INFO</code>)
+     * @throws SQLException
+     *
+     * @see #execute_prepared_update(ThreadContext, IRubyObject, IRubyObject)
+     */
+    @JRubyMethod(name = "execute_prepared_batch", required = 2)
+    public IRubyObject execute_prepared_batch(final ThreadContext context, final IRubyObject sql, final IRubyObject bindsList) {
+        final RubyArray binds = (RubyArray) TypeConverter.checkArrayType(context, bindsList);
+        if (binds.isEmpty()) return newEmptyArray(context);
+
+        return withConnection(context, StatementTimings.Call.UPDATE, sql, false, connection -> {
+            PreparedStatement statement = null;
+            final String query = sqlString(sql);
+            try {
+                statement = startStatement(connection.prepareStatement(query));
+                return mapUpdateCounts(context, executePreparedBatch(context, connection, statement, binds));
+            } catch (final SQLException e) {
+                debugErrorSQL(context, query);
+                throw e;
+            } finally {
+                close(statement);
+            }
+        });
+    }
+
+    /**
+     * Executes an INSERT SQL as a (JDBC) batch, same as {@link #execute_prepared_batch(ThreadContext, IRubyObject, IRubyObject)}
+     * but also collects the generated keys (where supported by the driver).
+     * @param context
+     * @param sql
+     * @param bindsList RubyArray of binds (arrays) - one per row
+     * @param pk Rails PK
+     * @return a pair of the (per row) affected row counts and the generated keys (ActiveRecord::Result or nil)
+     * @throws SQLException
+     *
+     * @see #execute_insert_pk(ThreadContext, IRubyObject, IRubyObject, IRubyObject)
+     */
+    @JRubyMethod(name = "execute_prepared_batch_insert_pk", required = 3)
+    public IRubyObject execute_prepared_batch_insert_pk(final ThreadContext context, final IRubyObject sql,
+                                                        final IRubyObject bindsList, final IRubyObject pk) {
+        final RubyArray binds = (RubyArray) TypeConverter.checkArrayType(context, bindsList);
+        if (binds.isEmpty()) return newArray(context, newEmptyArray(context), context.nil);
+
+        return withConnection(context, StatementTimings.Call.INSERT, sql, false, connection -> {
+            PreparedStatement statement = null;
+            final String query = sqlString(sql);
+            try {
+                if (pk == context.nil || pk == context.fals || !supportsGeneratedKeys(connection)) {
+                    statement = startStatement(connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS));
+                } else {
+                    statement = startStatement(connection.prepareStatement(query, createStatementPk(pk)));
+                }
+
+                final int[] counts = executePreparedBatch(context, connection, statement, binds);
+                return newArray(context, mapUpdateCounts(context, counts), mapGeneratedKeys(context, connection, statement));
+            } catch (final SQLException e) {
+                debugErrorSQL(context, query);
+                throw e;
+            } finally {
+                close(statement);
+            }
+        });
+    }
+
+    private int[] executePreparedBatch(final ThreadContext context, final Connection connection,
+        final PreparedStatement statement, final RubyArray bindsList) throws SQLException {
+        final BindEncoderChain encoders = new BindEncoderChain(); // resolved for the first row
+        for (int i = 0; i < bindsList.size(); i++) {
+            final IRubyObject binds = bindsList.eltInternal(i);
+            setStatementParameters(context, connection, statement, (RubyArray) TypeConverter.checkArrayType(context, binds), encoders);
+            statement.addBatch();
+        }
+        final long start = executeStart();
+        final int[] counts = statement.executeBatch();
+        executeEnd(start);
+        for (int count : counts) rowsAffected(count);
+        return counts;
+    }
+
+    private static RubyArray mapUpdateCounts(final ThreadContext context, final int[] counts) {
+        final IRubyObject[] rowCounts = new IRubyObject[counts.length];
+        for (int i = 0; i < counts.length; i++) rowCounts[i] = asFixnum(context, counts[i]);
+        return newArrayNoCopy(context, rowCounts);
+    }
+
     /**
      * This is the same as execute_query but it will return a list of hashes.
      *
@@ -1053,26 +1551,30 @@ public class RubyJdbcConnection extends RubyObject {
                 break;
         }
 
-        return doExecuteQueryRaw(context, query, maxRows, block, binds);
+        return doExecuteQueryRaw(context, args[0], query, maxRows, block, binds);
     }
 
-    private IRubyObject doExecuteQueryRaw(final ThreadContext context,
+    private IRubyObject doExecuteQueryRaw(final ThreadContext context, final IRubyObject sql,
         final String query, final int maxRows, final Block block, final RubyArray binds) {
-        return withConnection(context, connection -> {
+        return withConnection(context, timedCall(binds), sql, isReadQuery(query), connection -> {
             Statement statement = null; boolean hasResult;
             try {
                 if ( binds == null || binds.isEmpty()) { // plain statement
-                    statement = createStatement(context, connection);
+                    statement = startStatement(createStatement(context, connection));
                     statement.setMaxRows(maxRows); // zero means there is no limit
+                    final long start = executeStart();
                     hasResult = statement.execute(query);
+                    executeEnd(start);
                 }
                 else {
                     final PreparedStatement prepStatement;
-                    statement = prepStatement = connection.prepareStatement(query);
+                    statement = prepStatement = startStatement(connection.prepareStatement(query));
                     if (fetchSize != 0) statement.setFetchSize(fetchSize);
                     statement.setMaxRows(maxRows); // zero means there is no limit
                     setStatementParameters(context, connection, prepStatement, binds);
+                    final long start = executeStart();
                     hasResult = prepStatement.execute();
+                    executeEnd(start);
                 }
 
                 if (block.isGiven()) {
@@ -1112,14 +1614,18 @@ public class RubyJdbcConnection extends RubyObject {
      */
     @JRubyMethod(required = 1)
     public IRubyObject execute_query(final ThreadContext context, final IRubyObject sql) {
-        return withConnection(context, connection -> {
+        return withConnection(context, StatementTimings.Call.QUERY, sql, isReadQuery(sql), connection -> {
             Statement statement = null;
             final String query = sqlString(sql);
             try {
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
+
+                final long start = executeStart();
+                final boolean hasResult = statement.execute(query);
+                executeEnd(start);
 
                 // At least until AR 5.1 #exec_query still gets called for things that don't return results in some cases :(
-                if (statement.execute(query)) {
+                if (hasResult) {
                     return mapQueryResult(context, connection, statement.getResultSet());
                 }
 
@@ -1134,13 +1640,88 @@ public class RubyJdbcConnection extends RubyObject {
         });
     }
 
+    /**
+     * Executes a query and returns a streaming result, rows are read (in chunks of
+     * <code>jdbc_fetch_size</code>, 1000 by default) as the result gets iterated.
+     * The (driver) fetch size of the statement is set to the chunk size.
+     * <p>
+     * NOTE: whether the driver actually streams rows depends on the driver, e.g.
+     * PostgreSQL only uses a cursor (with a fetch size) with auto-commit off (inside
+     * a transaction), otherwise all rows are loaded on execute. MySQL's Connector/J
+     * streams rows using a fetch size of <code>Integer.MIN_VALUE</code>, unless
+     * configured to use (server-side) cursors with <code>useCursorFetch=true</code>.
+     * </p>
+     *
+     * @param context which context this method is executing on.
+     * @param args the query (sql) and optional binds
+     * @return a one-pass <code>StreamingResult</code> (needs to be iterated or closed)
+     * @see StreamingResult
+     */
+    @JRubyMethod(required = 1, optional = 1)
+    public IRubyObject execute_query_stream(final ThreadContext context, final IRubyObject[] args) {
+        final String query = sqlString(args[0]);
+        final RubyArray binds = args.length > 1 && args[1] != context.nil ?
+                (RubyArray) TypeConverter.checkArrayType(context, args[1]) : null;
+
+        final int chunkSize = fetchSize > 0 ? fetchSize : StreamingResult.DEFAULT_CHUNK_SIZE;
+        return withConnection(context, timedCall(binds), args[0], isReadQuery(query), connection -> {
+            Statement statement = null;
+            try {
+                final ResultSet resultSet;
+                if (binds == null || binds.isEmpty()) { // plain statement
+                    statement = startStatement(createStatement(context, connection));
+                    statement.setFetchSize(streamingFetchSize(context, connection, chunkSize));
+                    final long start = executeStart();
+                    resultSet = statement.executeQuery(query);
+                    executeEnd(start);
+                }
+                else {
+                    final PreparedStatement prepStatement;
+                    statement = prepStatement = startStatement(connection.prepareStatement(query));
+                    statement.setFetchSize(streamingFetchSize(context, connection, chunkSize));
+                    setStatementParameters(context, connection, prepStatement, binds);
+                    final long start = executeStart();
+                    resultSet = prepStatement.executeQuery();
+                    executeEnd(start);
+                }
+
+                final ColumnData[] columns = extractColumns(context, connection, resultSet, false);
+                final RubyClass StreamingResult = getJdbcConnection(context).getClass(context, "StreamingResult");
+                final IRubyObject result = new StreamingResult(context, StreamingResult, this, statement, resultSet, columns, chunkSize);
+                callStatements.remove(statement); // running until the result is consumed (or closed)
+                statement = null; // closed by the result (once consumed)
+                return result;
+            }
+            catch (final SQLException e) {
+                debugErrorSQL(context, query);
+                throw e;
+            }
+            finally {
+                close(statement);
+            }
+        });
+    }
+
+    /**
+     * The (driver) fetch size for statements executed by {@link #execute_query_stream(ThreadContext, IRubyObject[])}.
+     * @param context current thread context
+     * @param connection the connection
+     * @param chunkSize the number of rows decoded at a time
+     * @return the fetch size (the chunk size by default)
+     * @throws SQLException
+     */
+    protected int streamingFetchSize(final ThreadContext context, final Connection connection, final int chunkSize)
+        throws SQLException {
+        return chunkSize;
+    }
+
     @JRubyMethod(required = 1)
     public IRubyObject get_first_value(final ThreadContext context, final IRubyObject sql) {
-        return withConnection(context, connection -> {
+        return withConnection(context, isReadQuery(sql), connection -> {
             Statement statement = null;
             final String query = sqlString(sql);
             try {
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
                 statement.execute(query);
                 ResultSet rs = statement.getResultSet();
                 if (rs == null || !rs.next()) return context.nil;
@@ -1164,7 +1745,7 @@ public class RubyJdbcConnection extends RubyObject {
      */
     @JRubyMethod(required = 1)
     public IRubyObject prepare_statement(final ThreadContext context, final IRubyObject sql) {
-        return withConnection(context, connection -> {
+        return withConnection(context, true, connection -> {
             final String query = sql.convertToString().getUnicodeValue();
             PreparedStatement statement = connection.prepareStatement(query);
             if (fetchSize != 0) statement.setFetchSize(fetchSize);
@@ -1172,26 +1753,68 @@ public class RubyJdbcConnection extends RubyObject {
         });
     }
 
+    /**
+     * Removes (and closes) a statement from the connection's statement cache.
+     * @param context which context this method is executing on.
+     * @param key the statement key (as passed to <code>execute_prepared_query</code>)
+     * @return true if a cached statement was removed, false otherwise
+     */
+    @JRubyMethod(required = 1)
+    public IRubyObject delete_cached_statement(final ThreadContext context, final IRubyObject key) {
+        return context.runtime.newBoolean(statementCache.remove(key.convertToString().getByteList()));
+    }
+
+    /**
+     * Closes all statements in the connection's statement cache.
+     * @param context which context this method is executing on.
+     * @return nil
+     */
+    @JRubyMethod
+    public IRubyObject clear_statement_cache(final ThreadContext context) {
+        statementCache.clear();
+        return context.nil;
+    }
+
+    /**
+     * @param context which context this method is executing on.
+     * @return statement cache counters (size, max_size, hits, misses and evictions) as a Hash
+     */
+    @JRubyMethod
+    public IRubyObject statement_cache_stats(final ThreadContext context) {
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        stats.fastASet(runtime.newSymbol("size"), runtime.newFixnum(statementCache.size()));
+        stats.fastASet(runtime.newSymbol("max_size"), runtime.newFixnum(statementCache.maxSize()));
+        stats.fastASet(runtime.newSymbol("hits"), runtime.newFixnum(statementCache.hits()));
+        stats.fastASet(runtime.newSymbol("misses"), runtime.newFixnum(statementCache.misses()));
+        stats.fastASet(runtime.newSymbol("evictions"), runtime.newFixnum(statementCache.evictions()));
+        return stats;
+    }
+
     // Called from exec_query in abstract/database_statements
     /**
      * Executes a query and returns the (AR) result.  There are three parameters:
      * <ul>
      *     <li>sql - String of sql</li>
      *     <li>binds - Array of bindings for a prepared statement</li>
-     *     <li>cached_statement - A prepared statement object that should be used instead of creating a new statement</li>
+     *     <li>cached_statement - A statement (cache) key String to use a statement from the connection's
+     *     statement cache, or a prepared statement object that should be used instead of creating a new statement</li>
      * </ul>
      *
      * @param context which context this method is executing on.
      * @param sql the query to execute.
      * @param binds an array of values to be set as parameters
-     * @param cachedStatement a wrapped <code>PreparedStatement</code> to use instead of creating a new <code>Statement</code>
+     * @param cachedStatement a statement key (String) for the statement cache or a wrapped <code>PreparedStatement</code>
      * @return a Ruby <code>ActiveRecord::Result</code> instance
      * @throws SQLException when a database error occurs
      */
     @JRubyMethod(required = 3)
     public IRubyObject execute_prepared_query(final ThreadContext context, final IRubyObject sql,
         final IRubyObject binds, final IRubyObject cachedStatement) {
-        return withConnection(context, connection -> {
+        if (cachedStatement instanceof RubyString) {
+            return executeCachedQuery(context, sql, binds, ((RubyString) cachedStatement).getByteList());
+        }
+        return withConnection(context, StatementTimings.Call.PREPARED_QUERY, sql, isReadQuery(sql), connection -> {
             final boolean cached = !(cachedStatement == null || cachedStatement.isNil());
             String query = null;
             PreparedStatement statement = null;
@@ -1205,9 +1828,14 @@ public class RubyJdbcConnection extends RubyObject {
                     if (fetchSize != 0) statement.setFetchSize(fetchSize);
                 }
 
+                startStatement(statement);
                 setStatementParameters(context, connection, statement, (RubyArray) binds);
 
-                if (statement.execute()) {
+                final long start = executeStart();
+                final boolean hasResult = statement.execute();
+                executeEnd(start);
+
+                if (hasResult) {
                     ResultSet resultSet = statement.getResultSet();
                     IRubyObject results = mapQueryResult(context, connection, resultSet);
                     resultSet.close();
@@ -1230,12 +1858,230 @@ public class RubyJdbcConnection extends RubyObject {
         });
     }
 
+    private IRubyObject executeCachedQuery(final ThreadContext context, final IRubyObject sql,
+        final IRubyObject binds, final ByteList statementKey) {
+        final PreparedStatementCache.Key key = new PreparedStatementCache.Key(statementKey,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        return withConnection(context, StatementTimings.Call.PREPARED_QUERY, sql, isReadQuery(sql), connection -> {
+            PreparedStatementCache.Entry entry = statementCache.get(key);
+            try {
+                if (entry == null) {
+                    final PreparedStatement statement = connection.prepareStatement(sqlString(sql));
+                    if (fetchSize != 0) statement.setFetchSize(fetchSize);
+                    entry = statementCache.put(key, statement);
+                }
+                final PreparedStatement statement = startStatement(entry.statement);
+
+                setStatementParameters(context, connection, statement, (RubyArray) binds, entry.encoders);
+
+                try {
+                    final long start = executeStart();
+                    final boolean hasResult = statement.execute();
+                    executeEnd(start);
+
+                    if (hasResult) {
+                        ResultSet resultSet = statement.getResultSet();
+                        IRubyObject results = mapCachedQueryResult(context, connection, entry, resultSet);
+                        resultSet.close();
+
+                        return results;
+                    } else {
+                        return newEmptyResult(context);
+                    }
+                } finally {
+                    statement.clearParameters();
+                }
+            } catch (final SQLException e) {
+                // NOTE: do not keep a statement around that failed e.g. "cached plan must not change result type"
+                if (entry != null) statementCache.remove(key, entry);
+                debugErrorSQL(context, sqlString(sql));
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Executes a (prepared) query in the background, on a separate connection
+     * borrowed from the pool (<code>jdbc_pool: true</code>) - one that has been set-up
+     * by the adapter (<code>configure_connection</code>) before.
+     * The query runs synchronously (on the current connection) when there is no pool,
+     * the pool is exhausted or the connection borrowed has not been set-up.
+     * NOTE: the separate connection is not part of the current transaction (if any).
+     *
+     * @param context which context this method is executing on.
+     * @param sql the query to execute.
+     * @param binds an array of values to be set as parameters (or nil)
+     * @return a pending <code>AsyncQuery</code> result, #value returns the <code>ActiveRecord::Result</code>
+     * @see AsyncQuery
+     */
+    @JRubyMethod(required = 2)
+    public IRubyObject execute_prepared_query_async(final ThreadContext context, final IRubyObject sql,
+        final IRubyObject binds) {
+        final String query = sqlString(sql);
+        final RubyArray bindsArray = binds == context.nil ? null :
+                (RubyArray) TypeConverter.checkArrayType(context, binds);
+        if ( ! connected ) handleNotConnected(context); // raise ConnectionNotEstablished
+
+        final Ruby runtime = context.runtime;
+        final int timeout = queryTimeout; // as set for the call
+        final RubyClass AsyncQuery = getJdbcConnection(context).getClass(context, "AsyncQuery");
+        final Connection connection = newAsyncConnection(context);
+        if ( connection == null ) {
+            final IRubyObject args = bindsArray == null ? RubyArray.newEmptyArray(runtime) : bindsArray;
+            return new AsyncQuery(context, AsyncQuery, this, async -> execute_prepared_query(context, sql, args, context.nil));
+        }
+        return new AsyncQuery(context, AsyncQuery, this, connection,
+                async -> executeQueryAsync(runtime, connection, sql, query, bindsArray, timeout, async));
+    }
+
+    /**
+     * @return a (set-up) connection from the pool, null if none available (without waiting)
+     */
+    private Connection newAsyncConnection(final ThreadContext context) {
+        if ( ! ( connectionFactory instanceof PooledConnectionFactory.Lease ) ) return null;
+
+        final long start = System.nanoTime();
+        final Connection connection;
+        try {
+            connection = ((PooledConnectionFactory.Lease) connectionFactory).tryNewConnection();
+        }
+        catch (SQLException e) {
+            debugMessage(context.runtime, "failed to borrow a connection for an async query: ", e);
+            return null;
+        }
+        if ( connection == null ) return null;
+        if ( configureConnection && ! PooledConnectionFactory.isConfigured(connection) ) {
+            close(connection); return null; // not set-up the same way as (current) connections
+        }
+        getTimings().record(StatementTimings.Call.PREPARED_QUERY, StatementTimings.Phase.ACQUIRE, System.nanoTime() - start);
+        return connection;
+    }
+
+    // NOTE: runs on an executor thread (not the caller's)
+    private IRubyObject executeQueryAsync(final Ruby runtime, final Connection connection,
+        final IRubyObject sql, final String query, final RubyArray binds,
+        final int timeout, final AsyncQuery async) throws SQLException {
+        final ThreadContext context = runtime.getCurrentContext();
+        final StatementTimings timings = getTimings();
+        long start;
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(query);
+            if (fetchSize != 0) statement.setFetchSize(fetchSize);
+            if (timeout > 0) statement.setQueryTimeout(timeout);
+            if (binds != null) setStatementParameters(context, connection, statement, binds);
+            // NOTE: not registered as a running statement, cancel_running_query does not cancel async queries
+            if (!async.statementStarted(statement)) return context.nil; // cancelled (result not used)
+
+            final JdbcEvents.Execute event = new JdbcEvents.Execute();
+            event.begin();
+            start = System.nanoTime();
+            final boolean hasResult = statement.execute();
+            timings.record(StatementTimings.Call.PREPARED_QUERY, StatementTimings.Phase.EXECUTE, System.nanoTime() - start);
+            if ( event.shouldCommit() ) {
+                event.database = timings.getName();
+                event.call = "prepared_query";
+                event.sql = JdbcEvents.sql(sql);
+                event.fingerprint = JdbcEvents.fingerprint(sql, supportsBackslashEscapes());
+                event.commit();
+            }
+
+            if (hasResult) {
+                final ResultSet resultSet = statement.getResultSet();
+                try {
+                    return mapQueryResult(context, connection, resultSet);
+                }
+                finally {
+                    close(resultSet);
+                }
+            }
+            return newEmptyResult(context);
+        }
+        catch (final SQLException e) {
+            debugErrorSQL(context, query);
+            PooledConnectionFactory.failed(connection, e);
+            throw e;
+        }
+        finally {
+            async.statementFinished();
+            close(statement);
+            close(connection);
+        }
+    }
+
+    /**
+     * Raises an async (query) failure the way a failure within <code>withConnection</code> is raised.
+     */
+    final <T> T handleAsyncException(final ThreadContext context, final Exception exception) {
+        try {
+            return withConnectionError(context, exception, true, true);
+        }
+        catch (SQLException e) {
+            return handleException(context, e); // should never happen
+        }
+    }
+
     protected IRubyObject mapQueryResult(final ThreadContext context,
         final Connection connection, final ResultSet resultSet) throws SQLException {
         final ColumnData[] columns = extractColumns(context, connection, resultSet, false);
         return mapToResult(context, connection, resultSet, columns);
     }
 
+    /**
+     * Maps the result of a cached prepared statement, columns are resolved once (per statement)
+     * and re-used for following executions of the same SQL.
+     * @see #extractQueryColumns(ThreadContext, Connection, ResultSet)
+     * @see #mapQueryResult(ThreadContext, Connection, ResultSet, ColumnData[])
+     */
+    private IRubyObject mapCachedQueryResult(final ThreadContext context, final Connection connection,
+        final PreparedStatementCache.Entry entry, final ResultSet resultSet) throws SQLException {
+        ColumnData[] columns = entry.columns;
+        // NOTE: re-check the columns as a (cached) statement might get re-prepared on schema changes
+        if (columns == null || columnsChanged(columns, resultSet.getMetaData())) {
+            entry.columns = columns = extractQueryColumns(context, connection, resultSet);
+        }
+        return mapQueryResult(context, connection, resultSet, columns);
+    }
+
+    // @return whether the (cached) columns no longer match the result's column count, labels or types
+    private static boolean columnsChanged(final ColumnData[] columns, final ResultSetMetaData metaData) throws SQLException {
+        if ( columns.length != metaData.getColumnCount() ) return true;
+        for ( int i = 0; i < columns.length; i++ ) {
+            final ColumnData column = columns[i];
+            if ( column.type != metaData.getColumnType(i + 1) ) return true;
+            // labels might have been case converted (for Rails)
+            if ( ! column.getName().equalsIgnoreCase(metaData.getColumnLabel(i + 1)) ) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the (result) columns for a query result, these might get cached for prepared statements.
+     * @param context
+     * @param connection
+     * @param resultSet
+     * @return columns data
+     * @throws SQLException
+     */
+    protected ColumnData[] extractQueryColumns(final ThreadContext context,
+        final Connection connection, final ResultSet resultSet) throws SQLException {
+        return extractColumns(context, connection, resultSet, false);
+    }
+
+    /**
+     * Same as {@link #mapQueryResult(ThreadContext, Connection, ResultSet)} with the columns already resolved.
+     * @param context
+     * @param connection
+     * @param resultSet
+     * @param columns as returned from {@link #extractQueryColumns(ThreadContext, Connection, ResultSet)}
+     * @return expected to return a <code>ActiveRecord::Result</code>
+     * @throws SQLException
+     */
+    protected IRubyObject mapQueryResult(final ThreadContext context, final Connection connection,
+        final ResultSet resultSet, final ColumnData[] columns) throws SQLException {
+        return mapToResult(context, connection, resultSet, columns);
+    }
+
     @JRubyMethod(name = "supported_data_types")
     public IRubyObject supported_data_types(final ThreadContext context) throws SQLException {
         final Connection connection = getConnection(true);
@@ -1259,7 +2105,7 @@ public class RubyJdbcConnection extends RubyObject {
     protected static final int PRIMARY_KEYS_COLUMN_NAME = 4;
 
     private List<RubyString> primaryKeys(final ThreadContext context, final String tableName) {
-        return withConnection(context, connection -> {
+        return withConnection(context, true, connection -> {
             final String _tableName = caseConvertIdentifierForJdbc(connection, tableName);
             final TableName table = extractTableName(connection, null, null, _tableName);
             return primaryKeys(context, connection, table);
@@ -1301,7 +2147,7 @@ public class RubyJdbcConnection extends RubyObject {
 
     protected IRubyObject tables(final ThreadContext context,
         final String catalog, final String schemaPattern, final String tablePattern, final String[] types) {
-        return withConnection(context, connection -> matchTables(context, connection, catalog, schemaPattern, tablePattern, types, false));
+        return withConnection(context, true, connection -> matchTables(context, connection, catalog, schemaPattern, tablePattern, types, false));
     }
 
     protected String[] getTableTypes() {
@@ -1331,7 +2177,7 @@ public class RubyJdbcConnection extends RubyObject {
 
     protected IRubyObject tableExists(final ThreadContext context,
         final String defaultSchema, final String tableName) {
-        return withConnection(context, connection -> {
+        return withConnection(context, true, connection -> {
             final TableName components = extractTableName(connection, defaultSchema, tableName);
             return context.runtime.newBoolean( tableExists(context, connection, components) );
         });
@@ -1340,7 +2186,7 @@ public class RubyJdbcConnection extends RubyObject {
     @JRubyMethod(name = {"columns", "columns_internal"}, required = 1, optional = 2)
     public RubyArray columns_internal(final ThreadContext context, final IRubyObject[] args)
         throws SQLException {
-        return withConnection(context, connection -> {
+        return withConnection(context, true, connection -> {
             ResultSet columns = null;
             try {
                 final String tableName = args[0].toString();
@@ -1390,7 +2236,7 @@ public class RubyJdbcConnection extends RubyObject {
      * should filter the return from this method instead.
      */
     protected IRubyObject indexes(final ThreadContext context, final String tableName, final String name, final String schemaName) {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final Ruby runtime = context.runtime;
             final RubyClass IndexDefinition = getIndexDefinition(context);
 
@@ -1461,7 +2307,7 @@ public class RubyJdbcConnection extends RubyObject {
     }
 
     protected IRubyObject foreignKeys(final ThreadContext context, final String tableName, final String schemaName, final String catalog) {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final Ruby runtime = context.runtime;
             final RubyClass FKDefinition = getForeignKeyDefinition(context);
 
@@ -1532,7 +2378,7 @@ public class RubyJdbcConnection extends RubyObject {
 
     @JRubyMethod(name = "supports_foreign_keys?")
     public IRubyObject supports_foreign_keys_p(final ThreadContext context) throws SQLException {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final DatabaseMetaData metaData = connection.getMetaData();
             return context.runtime.newBoolean( metaData.supportsIntegrityEnhancementFacility() );
         });
@@ -1540,7 +2386,7 @@ public class RubyJdbcConnection extends RubyObject {
 
     @JRubyMethod(name = "supports_views?")
     public IRubyObject supports_views_p(final ThreadContext context) throws SQLException {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final DatabaseMetaData metaData = connection.getMetaData();
             final ResultSet tableTypes = metaData.getTableTypes();
             try {
@@ -1620,7 +2466,7 @@ public class RubyJdbcConnection extends RubyObject {
         // TODO: Fix this, the columns don't have the info needed to handle this anymore
         //       currently commented out so that it will compile
 
-        return withConnection(context, connection -> {
+        return withConnection(context, false, connection -> {
             PreparedStatement statement = null;
             try {
                 statement = connection.prepareStatement(sql);
@@ -1642,7 +2488,7 @@ public class RubyJdbcConnection extends RubyObject {
     protected String caseConvertIdentifierForRails(final Connection connection, final String value)
         throws SQLException {
         if ( value == null ) return null;
-        return caseConvertIdentifierForRails(connection.getMetaData(), value);
+        return getCapabilities(connection).caseConvertIdentifierForRails(value);
     }
 
     /**
@@ -1665,7 +2511,7 @@ public class RubyJdbcConnection extends RubyObject {
     protected String caseConvertIdentifierForJdbc(final Connection connection, final String value)
         throws SQLException {
         if ( value == null ) return null;
-        return caseConvertIdentifierForJdbc(connection.getMetaData(), value);
+        return getCapabilities(connection).caseConvertIdentifierForJdbc(value);
     }
 
     /**
@@ -1785,36 +2631,173 @@ public class RubyJdbcConnection extends RubyObject {
         }
 
         final String jdbcURL = buildURL(context, url);
-        final ConnectionFactory factory;
+        final String user = username.isNil() ? null : username.toString();
+        final String pass = password.isNil() ? null : password.toString();
+        ConnectionFactory factory;
 
         if ( driver_instance != null && ! driver_instance.isNil() ) {
             final Object driverInstance = driver_instance.toJava(Object.class);
             if ( driverInstance instanceof DriverWrapper ) {
-                setConnectionFactory(factory = new DriverConnectionFactory(
-                        (DriverWrapper) driverInstance, jdbcURL,
-                        ( username.isNil() ? null : username.toString() ),
-                        ( password.isNil() ? null : password.toString() )
-                ));
-                return factory;
+                factory = new DriverConnectionFactory((DriverWrapper) driverInstance, jdbcURL, user, pass);
             }
             else {
-                setConnectionFactory(factory = new RubyConnectionFactory(
+                factory = new RubyConnectionFactory(
                         driver_instance, context.runtime.newString(jdbcURL),
                         ( username.isNil() ? username : username.asString() ),
                         ( password.isNil() ? password : password.asString() )
-                ));
-                return factory;
+                );
             }
         }
+        else {
+            final DriverWrapper driverWrapper = newDriverWrapper(context, driver.toString());
+            factory = new DriverConnectionFactory(driverWrapper, jdbcURL, user, pass);
+        }
 
-        final String user = username.isNil() ? null : username.toString();
-        final String pass = password.isNil() ? null : password.toString();
+        // NOTE: breakers and pools are shared (between connections) for the same URL and credentials
+        final String key = jdbcURL + '\0' + user + '\0' + pass;
+        factory = withCircuitBreaker(context, key, factory);
+        setupStats(context, timingsName(jdbcURL, user));
+
+        final IRubyObject pool = getConfigValue(context, "jdbc_pool");
+        if ( pool != context.nil && pool != context.fals ) {
+            final PooledConnectionFactory.Lease lease = PooledConnectionFactory.sharedPool(key, factory, resolvePoolConfig(context));
+            if ( lease.isConfigMismatch() ) {
+                warn(context, "jdbc_pool (" + timingsName(jdbcURL, user) + ") is shared with connections configured differently," +
+                        " using the configuration of the first connection");
+            }
+            context.runtime.addInternalFinalizer(lease.teardown); // released on runtime tear-down
+            factory = lease;
+        }
 
-        final DriverWrapper driverWrapper = newDriverWrapper(context, driver.toString());
-        setConnectionFactory(factory = new DriverConnectionFactory(driverWrapper, jdbcURL, user, pass));
+        setConnectionFactory(factory);
         return factory;
     }
 
+    private PooledConnectionFactory.Config resolvePoolConfig(final ThreadContext context) {
+        final PooledConnectionFactory.Config config = new PooledConnectionFactory.Config();
+        IRubyObject value = getConfigValue(context, "jdbc_pool_max_size");
+        if ( value == context.nil ) value = getConfigValue(context, "pool");
+        if ( value != context.nil ) config.maxSize = Math.max(toInt(context, value.callMethod(context, "to_i")), 1);
+        value = getConfigValue(context, "jdbc_pool_min_size");
+        if ( value != context.nil ) config.minSize = Math.min(toInt(context, value.callMethod(context, "to_i")), config.maxSize);
+        value = getConfigValue(context, "jdbc_pool_idle_timeout");
+        if ( value != context.nil ) config.idleTimeout = toMillis(context, value);
+        value = getConfigValue(context, "jdbc_pool_max_lifetime");
+        if ( value != context.nil ) config.maxLifetime = toMillis(context, value);
+        value = getConfigValue(context, "jdbc_pool_checkout_timeout");
+        if ( value == context.nil ) value = getConfigValue(context, "checkout_timeout");
+        if ( value != context.nil ) config.checkoutTimeout = toMillis(context, value);
+        value = getConfigValue(context, "jdbc_pool_validation_timeout");
+        if ( value != context.nil ) config.validationTimeout = toInt(context, value.callMethod(context, "to_i"));
+        value = getConfigValue(context, "jdbc_pool_validation_interval");
+        if ( value != context.nil ) config.validationInterval = toMillis(context, value);
+        value = getConfigValue(context, "connection_alive_window");
+        if ( value != context.nil ) config.validationWindow = toMillis(context, value);
+        return config;
+    }
+
+    private static String timingsName(final String jdbcURL, final String user) {
+        int end = jdbcURL.indexOf('?'); // NOTE: URL parameters might contain a password
+        if ( end == -1 ) end = jdbcURL.indexOf(';');
+        final String url = end == -1 ? jdbcURL : jdbcURL.substring(0, end);
+        return user == null ? url : user + '@' + url;
+    }
+
+    private void setupStats(final ThreadContext context, final String name) {
+        timings = StatementTimings.shared(name);
+        final IRubyObject enabled = getConfigValue(context, "query_stats");
+        if ( enabled != context.nil && ! enabled.isTrue() ) {
+            queryStats = null;
+        }
+        else {
+            final IRubyObject max = getConfigValue(context, "query_stats_max");
+            queryStats = QueryStats.shared(name, max == context.nil ? QueryStats.DEFAULT_MAX : toInt(context, max.callMethod(context, "to_i")));
+        }
+
+        final IRubyObject threshold = getConfigValue(context, "slow_query_threshold");
+        slowQueryThreshold = threshold == context.nil ? 0 :
+                Math.max(0, (long) ( ((RubyNumeric) threshold.callMethod(context, "to_f")).asDouble(context) * 1_000_000_000 ));
+        if ( slowQueryThreshold > 0 ) {
+            final IRubyObject size = getConfigValue(context, "slow_query_log_size");
+            slowQueryLog = SlowQueryLog.shared(name, size == context.nil ? SlowQueryLog.DEFAULT_SIZE : toInt(context, size.callMethod(context, "to_i")));
+            final IRubyObject explain = getConfigValue(context, "slow_query_explain");
+            slowQueryExplain = explain == context.nil || explain.isTrue();
+        }
+        else {
+            slowQueryLog = null;
+        }
+    }
+
+    protected final StatementTimings getTimings() {
+        StatementTimings timings = this.timings;
+        if ( timings == null ) timings = this.timings = StatementTimings.shared("default"); // custom connection factory
+        return timings;
+    }
+
+    private ConnectionFactory withCircuitBreaker(final ThreadContext context, final String key,
+        final ConnectionFactory factory) {
+        final IRubyObject breaker = getConfigValue(context, "jdbc_circuit_breaker");
+        if ( breaker == context.nil || breaker == context.fals ) return factory;
+
+        final CircuitBreakerConnectionFactory.Config config = new CircuitBreakerConnectionFactory.Config();
+        IRubyObject value = getConfigValue(context, "jdbc_circuit_breaker_failures");
+        if ( value != context.nil ) config.failureThreshold = toInt(context, value.callMethod(context, "to_i"));
+        value = getConfigValue(context, "jdbc_circuit_breaker_cooldown");
+        if ( value != context.nil ) config.cooldown = toMillis(context, value);
+        return circuitBreaker = CircuitBreakerConnectionFactory.sharedBreaker(key, factory, config);
+    }
+
+    private static long toMillis(final ThreadContext context, final IRubyObject seconds) {
+        return (long) ( ((RubyNumeric) seconds.callMethod(context, "to_f")).asDouble(context) * 1000 );
+    }
+
+    /**
+     * Creates the retry policy (for <code>withConnection</code>) from the configuration :
+     * <code>jdbc_retry_attempts</code>, <code>jdbc_retry_backoff</code> and <code>jdbc_retry_max_backoff</code>
+     * (in seconds) and <code>jdbc_retry_sql_states</code> e.g. <code>{ '40001' => :retry, '08' => :reconnect }</code>.
+     * @param context
+     * @return the retry policy
+     */
+    protected RetryPolicy newRetryPolicy(final ThreadContext context) {
+        IRubyObject value = getConfigValue(context, "jdbc_retry_attempts");
+        final int maxAttempts = value == context.nil ?
+                RetryPolicy.DEFAULT_MAX_ATTEMPTS : toInt(context, value.callMethod(context, "to_i"));
+        value = getConfigValue(context, "jdbc_retry_backoff");
+        final long backoff = value == context.nil ? RetryPolicy.DEFAULT_BACKOFF : toMillis(context, value);
+        value = getConfigValue(context, "jdbc_retry_max_backoff");
+        final long maxBackoff = value == context.nil ? RetryPolicy.DEFAULT_MAX_BACKOFF : toMillis(context, value);
+
+        Map<String, RetryPolicy.Action> sqlStates = null;
+        value = getConfigValue(context, "jdbc_retry_sql_states");
+        if ( value instanceof RubyHash ) {
+            sqlStates = new HashMap<>();
+            for ( Object entry : ((RubyHash) value).directEntrySet() ) {
+                final Map.Entry<?, ?> e = (Map.Entry<?, ?>) entry;
+                final IRubyObject val = (IRubyObject) e.getValue();
+                final String action = val.toString().toUpperCase(Locale.ENGLISH);
+                try {
+                    sqlStates.put(e.getKey().toString(), RetryPolicy.Action.valueOf(action));
+                }
+                catch (IllegalArgumentException ex) {
+                    throw argumentError(context, "invalid jdbc_retry_sql_states action: " + val.inspect() +
+                            " (expected :retry, :reconnect or :fail)");
+                }
+            }
+        }
+        return new RetryPolicy(maxAttempts, backoff, maxBackoff, sqlStates);
+    }
+
+    protected final RetryPolicy getRetryPolicy() {
+        RetryPolicy retryPolicy = this.retryPolicy;
+        if ( retryPolicy == null ) retryPolicy = this.retryPolicy = new RetryPolicy(); // not yet initialized
+        return retryPolicy;
+    }
+
+    private static int toSeconds(final ThreadContext context, final IRubyObject seconds) {
+        if ( seconds == context.nil ) return 0;
+        return (int) Math.ceil( ((RubyNumeric) seconds.callMethod(context, "to_f")).asDouble(context) ); // JDBC timeouts are in (whole) seconds
+    }
+
     protected DriverWrapper newDriverWrapper(final ThreadContext context, final String driver) throws RaiseException {
         try {
             return new DriverWrapper(context.runtime, driver, resolveDriverProperties(context));
@@ -1885,6 +2868,9 @@ public class RubyJdbcConnection extends RubyObject {
             lookupName = null;
         }
         ConnectionFactory factory = new DataSourceConnectionFactory(dataSource, lookupName);
+        final String key = lookupName != null ? lookupName : "data_source@" + System.identityHashCode(dataSource);
+        factory = withCircuitBreaker(context, key, factory);
+        setupStats(context, key);
         setConnectionFactory(factory);
         return factory;
     }
@@ -1914,7 +2900,13 @@ public class RubyJdbcConnection extends RubyObject {
         }
 
         if ( defaultConfig != null && ( defaultConfig == config || defaultConfig.eql(config) ) ) {
-            setConnectionFactory( defaultConnectionFactory );
+            ConnectionFactory factory = defaultConnectionFactory;
+            if ( factory instanceof PooledConnectionFactory.Lease ) { // each connection holds its own lease
+                final PooledConnectionFactory.Lease lease = ((PooledConnectionFactory.Lease) factory).newLease();
+                context.runtime.addInternalFinalizer(lease.teardown);
+                factory = lease;
+            }
+            setConnectionFactory( factory );
             return defaultConfigJndi;
         }
 
@@ -2024,84 +3016,315 @@ public class RubyJdbcConnection extends RubyObject {
     protected IRubyObject mapToResult(final ThreadContext context, final Connection connection,
                                       final ResultSet resultSet, final ColumnData[] columns) throws SQLException {
         final Ruby runtime = context.runtime;
+        final long start = timingStart();
+        final JdbcEvents.ResultMapping event = resultMappingStart(start);
+
+        if (columnarResults) {
+            final ColumnBuffer[] buffers = new ColumnBuffer[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                final ColumnData column = columns[i];
+                ColumnDecoder decoder = column.decoder;
+                if (decoder == null) {
+                    decoder = column.decoder = columnDecoder(context, resultSet.getMetaData(), column.index, column.type, column.dedup);
+                }
+                buffers[i] = newColumnBuffer(context, column.index, column.type, decoder);
+            }
+            final int rowCount = ColumnBuffer.readRows(context, resultSet, buffers);
+            final RubyArray rows = ColumnBuffer.toRows(context, buffers, rowCount);
+            rowsFetched(rowCount);
+            final long fetched = recordTiming(StatementTimings.Phase.FETCH, start);
+            final IRubyObject result = newResult(context, columns, rows);
+            recordTiming(StatementTimings.Phase.RESULT, fetched);
+            resultMappingEnd(event, rows, columns.length);
+            return result;
+        }
 
         final RubyArray resultRows = newArray(context);
 
         while (resultSet.next()) {
             resultRows.append(context, mapRow(context, runtime, columns, resultSet, this));
         }
+        rowsFetched(resultRows.size());
 
-        return newResult(context, columns, resultRows);
+        final long fetched = recordTiming(StatementTimings.Phase.FETCH, start);
+        final IRubyObject result = newResult(context, columns, resultRows);
+        recordTiming(StatementTimings.Phase.RESULT, fetched);
+        resultMappingEnd(event, resultRows, columns.length);
+        return result;
     }
 
+    /**
+     * Converts a column value using the decoder registered for the (JDBC) type.
+     * <p>
+     * NOTE: results resolve decoders once per column, adapters customize conversions by
+     * registering decoders. Overriding this method is still supported, but all columns
+     * of such a connection get decoded through it (type dispatch for every value).
+     * </p>
+     * @see #registerColumnDecoders(ColumnDecoders)
+     */
     protected IRubyObject jdbcToRuby(
         final ThreadContext context, final Ruby runtime,
         final int column, final int type, final ResultSet resultSet)
         throws SQLException {
+        return getColumnDecoders().get(type).decode(context, resultSet, column);
+    }
 
-        try {
-            switch (type) {
-            case Types.BLOB:
-            case Types.BINARY:
-            case Types.VARBINARY:
-            case Types.LONGVARBINARY:
-                return streamToRuby(context, runtime, resultSet, column);
-            case Types.CLOB:
-            case Types.NCLOB: // JDBC 4.0
-                return readerToRuby(context, runtime, resultSet, column);
-            case Types.LONGVARCHAR:
-            case Types.LONGNVARCHAR: // JDBC 4.0
-                return readerToRuby(context, runtime, resultSet, column);
+    /**
+     * @return the decoders of this connection, registered on first use
+     * @see #registerColumnDecoders(ColumnDecoders)
+     */
+    protected final ColumnDecoders getColumnDecoders() {
+        ColumnDecoders decoders = columnDecoders;
+        if ( decoders == null ) {
+            decoders = new ColumnDecoders();
+            registerColumnDecoders(decoders);
+            columnDecoders = decoders;
+        }
+        return decoders;
+    }
+
+    /**
+     * Registers the column decoders (per JDBC type or type name), called once per connection.
+     * The base decoders delegate to the (overridable) <code>xxxToRuby</code> conversion methods,
+     * adapters should call super and register their own decoders on top.
+     * @param decoders the (empty) decoders to register with
+     */
+    protected void registerColumnDecoders(final ColumnDecoders decoders) {
+        decoders.registerDefault((context, resultSet, column) -> stringToRuby(context, context.runtime, resultSet, column));
+        decoders.register(
+                (context, resultSet, column) -> {
+                    try { return streamToRuby(context, context.runtime, resultSet, column); }
+                    catch (IOException e) { throw new SQLException(e.getMessage(), e); }
+                },
+                Types.BLOB, Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY);
+        decoders.register(
+                (context, resultSet, column) -> {
+                    try { return readerToRuby(context, context.runtime, resultSet, column); }
+                    catch (IOException e) { throw new SQLException(e.getMessage(), e); }
+                },
+                Types.CLOB, Types.NCLOB, Types.LONGVARCHAR, Types.LONGNVARCHAR);
+        decoders.register((context, resultSet, column) -> integerToRuby(context, context.runtime, resultSet, column),
+                Types.TINYINT, Types.SMALLINT, Types.INTEGER);
+        decoders.register((context, resultSet, column) -> doubleToRuby(context, context.runtime, resultSet, column),
+                Types.REAL, Types.FLOAT, Types.DOUBLE);
+        decoders.register((context, resultSet, column) -> bigIntegerToRuby(context, context.runtime, resultSet, column),
+                Types.BIGINT);
+        decoders.register((context, resultSet, column) -> decimalToRuby(context, context.runtime, resultSet, column),
+                Types.NUMERIC, Types.DECIMAL);
+        decoders.register((context, resultSet, column) -> dateToRuby(context, context.runtime, resultSet, column),
+                Types.DATE);
+        decoders.register((context, resultSet, column) -> timeToRuby(context, context.runtime, resultSet, column),
+                Types.TIME);
+        decoders.register(overridesTimestampToRuby.get(getClass()) ?
+                (context, resultSet, column) -> timestampToRuby(context, context.runtime, resultSet, column) :
+                new TimestampDecoder(), Types.TIMESTAMP);
+        decoders.register((context, resultSet, column) -> bitToRuby(context, context.runtime, resultSet, column),
+                Types.BIT);
+        decoders.register((context, resultSet, column) -> booleanToRuby(context, context.runtime, resultSet, column),
+                Types.BOOLEAN);
+        decoders.register((context, resultSet, column) -> xmlToRuby(context, context.runtime, resultSet, column),
+                Types.SQLXML);
+        decoders.register((context, resultSet, column) -> arrayToRuby(context, context.runtime, resultSet, column),
+                Types.ARRAY); // we handle JDBC Array into (Ruby) []
+        decoders.register((context, resultSet, column) -> context.nil,
+                Types.NULL);
+        // NOTE: (JDBC) exotic stuff just cause it's so easy with JRuby :)
+        decoders.register((context, resultSet, column) -> objectToRuby(context, context.runtime, resultSet, column),
+                Types.JAVA_OBJECT, Types.OTHER);
+        // NOTE: not mapped types (decoded as strings) :
+        //Types.DISTINCT, Types.STRUCT, Types.REF, Types.DATALINK
+    }
+
+    /**
+     * Resolves the decoder for a result column, done once per column (and result).
+     * The default looks up the registered decoders (by type name and JDBC type).
+     * @param context current thread context
+     * @param metaData the result's meta-data
+     * @param column 1-based column index
+     * @param type the column's JDBC type
+     * @return the decoder for the column's values
+     * @throws SQLException if resolving fails
+     * @see #registerColumnDecoders(ColumnDecoders)
+     */
+    protected ColumnDecoder newColumnDecoder(final ThreadContext context,
+        final ResultSetMetaData metaData, final int column, final int type) throws SQLException {
+        return getColumnDecoders().resolve(metaData, column, type);
+    }
+
+    private static final ClassValue<Boolean> overridesJdbcToRuby = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> klass) {
+            return isOverridden(klass, "jdbcToRuby", ThreadContext.class, Ruby.class, int.class, int.class, ResultSet.class);
+        }
+    };
+
+    private static final ClassValue<Boolean> overridesTimestampToRuby = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> klass) {
+            return isOverridden(klass, "timestampToRuby", ThreadContext.class, Ruby.class, ResultSet.class, int.class);
+        }
+    };
+
+    // @return whether a (sub-class) re-defines the method
+    private static boolean isOverridden(final Class<?> klass, final String name, final Class<?>... parameterTypes) {
+        for ( Class<?> c = klass; c != RubyJdbcConnection.class && c != null; c = c.getSuperclass() ) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            }
+            catch (NoSuchMethodException e) { /* continue */ }
+        }
+        return false;
+    }
+
+    /**
+     * @param context current thread context
+     * @param metaData the result's meta-data
+     * @param column 1-based column index
+     * @param type the column's JDBC type
+     * @param dedup the column's dedup table (if de-duplicating)
+     * @return the decoder for the column
+     */
+    final ColumnDecoder columnDecoder(final ThreadContext context, final ResultSetMetaData metaData,
+        final int column, final int type, final StringDedup dedup) throws SQLException {
+        if ( dedup != null ) {
+            return (ctx, resultSet, col) -> dedupStringToRuby(ctx, ctx.runtime, resultSet, col, dedup);
+        }
+        if ( overridesJdbcToRuby.get(getClass()) ) { // backwards compatibility
+            return (ctx, resultSet, col) -> jdbcToRuby(ctx, ctx.runtime, col, type, resultSet);
+        }
+        return newColumnDecoder(context, metaData, column, type);
+    }
+
+    /**
+     * Whether the driver returns (character) column values as (default internal encoded) bytes
+     * from <code>ResultSet#getBytes</code> - those get wrapped into a Ruby string as is, avoiding
+     * the <code>java.lang.String</code> and the re-encoding. Adapters opt-in by overriding this,
+     * the <code>jdbc_string_bytes</code> config setting takes precedence.
+     * @return false by default
+     */
+    protected boolean supportsStringBytes() {
+        return false;
+    }
+
+    /**
+     * @return whether string values are read as bytes
+     * @see #supportsStringBytes()
+     */
+    public final boolean isStringBytes() {
+        return stringBytes;
+    }
+
+    private static final int MAX_DEDUP_COLUMNS = 256; // with string_dedup_columns: true
+
+    /**
+     * Resolves the (string value) de-duplication for a column, when configured using
+     * <code>string_dedup_columns</code> (an array of column names or true for all).
+     * @param name the column name (label)
+     * @param type the column's JDBC type
+     * @return the dedup (table) for the column or null if values should not be de-duplicated
+     */
+    final StringDedup stringDedup(final String name, final int type) {
+        if (stringDedups == null) return null;
+        switch (type) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                break;
+            default:
+                return null;
+        }
+        synchronized (stringDedups) {
+            StringDedup dedup = stringDedups.get(name);
+            if (dedup == null && stringDedupAll && stringDedups.size() < MAX_DEDUP_COLUMNS) {
+                stringDedups.put(name, dedup = new StringDedup());
+            }
+            return dedup;
+        }
+    }
+
+    /**
+     * Converts a (character) column into a frozen Ruby string, re-using the string for repeated values.
+     * @param context current thread context
+     * @param runtime the ruby runtime
+     * @param resultSet the jdbc result set to pull the value from
+     * @param column the index of the column to convert
+     * @param dedup the column's dedup table
+     * @return RubyNil if NULL or a (frozen) RubyString
+     * @throws SQLException if it failes to retrieve the value from the result set
+     * @see #stringDedup(String, int)
+     */
+    protected IRubyObject dedupStringToRuby(final ThreadContext context, final Ruby runtime,
+        final ResultSet resultSet, final int column, final StringDedup dedup) throws SQLException {
+        if ( stringBytes ) {
+            final byte[] value = resultSet.getBytes(column);
+            if ( value == null ) return context.nil;
+            Encoding encoding = runtime.getDefaultInternalEncoding();
+            if ( encoding == null ) encoding = runtime.getEncodingService().getJavaDefault();
+            return dedup.get(context, value, encoding);
+        }
+        final String value = resultSet.getString(column);
+        if ( value == null ) return context.nil;
+        return dedup.get(context, value);
+    }
+
+    final IRubyObject jdbcToRuby(final ThreadContext context, final Ruby runtime,
+        final ColumnData column, final ResultSet resultSet) throws SQLException {
+        final ColumnDecoder decoder = column.decoder;
+        if ( decoder != null ) return decoder.decode(context, resultSet, column.index);
+        // NOTE: columns not set up by this connection (resolving the decoder lazily)
+        column.decoder = columnDecoder(context, resultSet.getMetaData(), column.index, column.type, column.dedup);
+        return column.decoder.decode(context, resultSet, column.index);
+    }
+
+    /**
+     * @return whether results are read column-wise (<code>columnar_results: true</code>)
+     * @see #newColumnBuffer(ThreadContext, int, int, ColumnDecoder)
+     */
+    public final boolean isColumnarResults() {
+        return columnarResults;
+    }
+
+    /**
+     * Resolves how a column is going to be read for columnar results, done once
+     * per column (and result). The default reads integer, floating point,
+     * boolean and character values into primitive buffers and everything else
+     * through the column's decoder. Columns with a decoder other than the one
+     * registered for their JDBC type (e.g. by type name) are always decoded.
+     * Adapters that customize (some of) these conversions should override.
+     * @param context current thread context
+     * @param column the (1-based) column index
+     * @param type the column's JDBC type
+     * @param decoder the column's (resolved) decoder
+     * @return a buffer for reading the column's values
+     */
+    protected ColumnBuffer newColumnBuffer(final ThreadContext context, final int column, final int type,
+        final ColumnDecoder decoder) {
+        if ( decoder != getColumnDecoders().get(type) ) return new ColumnBuffer.Objects(column, decoder);
+        switch (type) {
             case Types.TINYINT:
             case Types.SMALLINT:
             case Types.INTEGER:
-                return integerToRuby(context, runtime, resultSet, column);
+                return new ColumnBuffer.Longs(column);
             case Types.REAL:
             case Types.FLOAT:
             case Types.DOUBLE:
-                return doubleToRuby(context, runtime, resultSet, column);
-            case Types.BIGINT:
-                return bigIntegerToRuby(context, runtime, resultSet, column);
-            case Types.NUMERIC:
-            case Types.DECIMAL:
-                return decimalToRuby(context, runtime, resultSet, column);
-            case Types.DATE:
-                return dateToRuby(context, runtime, resultSet, column);
-            case Types.TIME:
-                return timeToRuby(context, runtime, resultSet, column);
-            case Types.TIMESTAMP:
-                return timestampToRuby(context, runtime, resultSet, column);
-            case Types.BIT:
-                return bitToRuby(context, runtime, resultSet, column);
+                return new ColumnBuffer.Doubles(column);
             case Types.BOOLEAN:
-                return booleanToRuby(context, runtime, resultSet, column);
-            case Types.SQLXML: // JDBC 4.0
-                return xmlToRuby(context, runtime, resultSet, column);
-            case Types.ARRAY: // we handle JDBC Array into (Ruby) []
-                return arrayToRuby(context, runtime, resultSet, column);
-            case Types.NULL:
-                return context.nil;
-            // NOTE: (JDBC) exotic stuff just cause it's so easy with JRuby :)
-            case Types.JAVA_OBJECT:
-            case Types.OTHER:
-                return objectToRuby(context, runtime, resultSet, column);
-            // (default) String
+                if ( rawBoolean != null && rawBoolean ) break;
+                return new ColumnBuffer.Booleans(column);
             case Types.CHAR:
             case Types.VARCHAR:
             case Types.NCHAR: // JDBC 4.0
             case Types.NVARCHAR: // JDBC 4.0
-            default:
-                return stringToRuby(context, runtime, resultSet, column);
-            }
-            // NOTE: not mapped types :
-            //case Types.DISTINCT:
-            //case Types.STRUCT:
-            //case Types.REF:
-            //case Types.DATALINK:
-        }
-        catch (IOException e) {
-            throw new SQLException(e.getMessage(), e);
+                // NOTE: strings are buffered as UTF-8, which is what newDefaultInternalString ends up with
+                Encoding encoding = context.runtime.getDefaultInternalEncoding();
+                if ( encoding == null ) encoding = context.runtime.getEncodingService().getJavaDefault();
+                if ( encoding != UTF8Encoding.INSTANCE ) break;
+                return new ColumnBuffer.Strings(column, stringBytes);
         }
+        return new ColumnBuffer.Objects(column, decoder);
     }
 
     /**
@@ -2149,6 +3372,7 @@ public class RubyJdbcConnection extends RubyObject {
      */
     protected IRubyObject stringToRuby(final ThreadContext context,
         final Ruby runtime, final ResultSet resultSet, final int column) throws SQLException {
+        if ( stringBytes ) return bytesToRubyString(context, runtime, resultSet, column);
         final String value = resultSet.getString(column);
         if ( value == null ) return context.nil;
         return newDefaultInternalString(runtime, value);
@@ -2257,6 +3481,72 @@ public class RubyJdbcConnection extends RubyObject {
         return DateTimeUtils.newTime(context, value, getDefaultTimeZone(context));
     }
 
+    /**
+     * Reads TIMESTAMP values as <code>LocalDateTime</code> (JDBC 4.2), where the driver supports it,
+     * instead of going through a <code>Timestamp</code> (and its calendar fields).
+     * The default time-zone is resolved once per result (not for every value).
+     * Falls back to {@link #timestampToRuby(ThreadContext, Ruby, ResultSet, int)} otherwise.
+     * <p>
+     * NOTE: decoders are shared by results read concurrently (e.g. async queries), the
+     * (immutable) per-result zone is only cached for the latest result, others resolve their own.
+     * </p>
+     */
+    private final class TimestampDecoder implements ColumnDecoder {
+
+        private volatile boolean supported = true; // till the driver fails reading LocalDateTime
+        private volatile ResultZone resultZone;
+
+        @Override
+        public IRubyObject decode(final ThreadContext context, final ResultSet resultSet, final int column) throws SQLException {
+            if ( ! supported || ( rawDateTime != null && rawDateTime ) ) {
+                return timestampToRuby(context, context.runtime, resultSet, column);
+            }
+
+            final Object value;
+            // NOTE: other SQLExceptions (e.g. a lost connection) propagate, those do not disable LocalDateTime
+            try {
+                value = resultSet.getObject(column, LocalDateTime.class);
+            }
+            catch (SQLFeatureNotSupportedException|AbstractMethodError|UnsupportedOperationException e) {
+                return unsupported(context, resultSet, column, e);
+            }
+            if ( value == null ) {
+                return resultSet.wasNull() ? context.nil : RubyString.newEmptyString(context.runtime);
+            }
+            if ( ! ( value instanceof LocalDateTime ) ) { // some (older) drivers ignore the requested type
+                return unsupported(context, resultSet, column, value.getClass().getName());
+            }
+
+            ResultZone zone = resultZone;
+            if ( zone == null || zone.resultSet.get() != resultSet ) {
+                resultZone = zone = new ResultZone(resultSet, getDefaultTimeZone(context));
+            }
+            return DateTimeUtils.newTime(context, (LocalDateTime) value, zone.zone, zone.zoneId);
+        }
+
+        private IRubyObject unsupported(final ThreadContext context, final ResultSet resultSet, final int column,
+            final Object reason) throws SQLException {
+            debugMessage(context.runtime, "reading TIMESTAMP as LocalDateTime not supported (" + reason + ")");
+            supported = false;
+            return timestampToRuby(context, context.runtime, resultSet, column);
+        }
+
+    }
+
+    private static final class ResultZone {
+
+        final WeakReference<ResultSet> resultSet;
+        final DateTimeZone zone;
+        final ZoneId zoneId;
+
+        ResultZone(final ResultSet resultSet, final DateTimeZone zone) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.zone = zone;
+            this.zoneId = zone == DateTimeZone.UTC ? ZoneOffset.UTC : zone.toTimeZone().toZoneId();
+        }
+
+    }
+
     protected static Boolean rawBoolean;
     static {
         final String booleanRaw = SafePropertyAccessor.getProperty("arjdbc.boolean.raw");
@@ -2443,94 +3733,163 @@ public class RubyJdbcConnection extends RubyObject {
     protected void setStatementParameters(final ThreadContext context,
         final Connection connection, final PreparedStatement statement,
         final RubyArray binds) throws SQLException {
+        if ( timedThread == Thread.currentThread() ) timedBinds = binds; // slow query log
 
         for ( int i = 0; i < binds.getLength(); i++ ) {
             setStatementParameter(context, connection, statement, i + 1, binds.eltInternal(i));
         }
     }
 
+    /**
+     * Sets the parameters of a statement that gets executed repeatedly, using (and updating)
+     * the encoders resolved for previous executions.
+     * @see BindEncoderChain
+     */
+    final void setStatementParameters(final ThreadContext context,
+        final Connection connection, final PreparedStatement statement,
+        final RubyArray binds, final BindEncoderChain encoders) throws SQLException {
+        if ( overridesSetParameters.get(getClass()) ) { // backwards compatibility
+            setStatementParameters(context, connection, statement, binds);
+            return;
+        }
+        if ( timedThread == Thread.currentThread() ) timedBinds = binds; // slow query log
+
+        encoders.setParameters(context, this, connection, statement, binds);
+    }
+
+    private static final ClassValue<Boolean> overridesSetParameters = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> klass) {
+            return isOverridden(klass, "setStatementParameters", ThreadContext.class, Connection.class, PreparedStatement.class, RubyArray.class) ||
+                   isOverridden(klass, "setStatementParameter", ThreadContext.class, Connection.class, PreparedStatement.class, int.class, IRubyObject.class);
+        }
+    };
+
     // Set the prepared statement attributes based on the passed in Attribute object
     protected void setStatementParameter(final ThreadContext context,
             final Connection connection, final PreparedStatement statement,
             final int index, IRubyObject attribute) throws SQLException {
 
-        final IRubyObject value;
-        final int type;
+        final int kind = bindKind(attribute);
+        final int type = bindType(context, attribute, kind);
+        final IRubyObject value = kind == BIND_ATTRIBUTE ? valueForDatabase(context, attribute) : attribute;
 
-        if (attributeClass.isInstance(attribute)) {
-            type = jdbcTypeForAttribute(context, attribute);
-            value = valueForDatabase(context, attribute);
-        } else if (timeZoneClass.isInstance(attribute)) {
-            type = jdbcTypeFor("timestamp");
-            value = attribute;
-        } else {
-            type = jdbcTypeForPrimitiveAttribute(context, attribute);
-            value = attribute;
-        }
+        setStatementParameter(context, connection, statement, index, value, attribute, type, bindEncoder(type));
+    }
 
+    final void setStatementParameter(final ThreadContext context,
+        final Connection connection, final PreparedStatement statement,
+        final int index, final IRubyObject value, final IRubyObject attribute,
+        final int type, final BindEncoder encoder) throws SQLException {
         // All the set methods were calling this first so save a method call in the nil case
         if ( value == context.nil ) {
             statement.setNull(index, type);
             return;
         }
+        encoder.encode(context, connection, statement, index, value, attribute);
+    }
+
+    static final int BIND_VALUE = 0;
+    static final int BIND_ATTRIBUTE = 1; // ActiveModel::Attribute
+    static final int BIND_TIME_WITH_ZONE = 2;
+
+    final int bindKind(final IRubyObject bind) {
+        if ( attributeClass.isInstance(bind) ) return BIND_ATTRIBUTE;
+        if ( timeZoneClass.isInstance(bind) ) return BIND_TIME_WITH_ZONE;
+        return BIND_VALUE;
+    }
+
+    final int bindType(final ThreadContext context, final IRubyObject bind, final int kind) throws SQLException {
+        switch (kind) {
+            case BIND_ATTRIBUTE: return jdbcTypeForAttribute(context, bind);
+            case BIND_TIME_WITH_ZONE: return jdbcTypeFor("timestamp");
+            default: return jdbcTypeForPrimitiveAttribute(context, bind);
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, BindEncoder> bindEncoders = new ConcurrentHashMap<>(16);
 
+    /**
+     * @param type the JDBC type
+     * @return the encoder for the type, resolved once (per connection)
+     * @see #newBindEncoder(int)
+     */
+    protected final BindEncoder bindEncoder(final int type) {
+        BindEncoder encoder = bindEncoders.get(type);
+        if ( encoder == null ) {
+            encoder = newBindEncoder(type);
+            final BindEncoder existing = bindEncoders.putIfAbsent(type, encoder);
+            if ( existing != null ) encoder = existing;
+        }
+        return encoder;
+    }
+
+    /**
+     * Resolves how (non-nil) values of a JDBC type are set as statement parameters,
+     * called once per type (and connection). The default encoders delegate to the
+     * (overridable) <code>setXxxParameter</code> methods.
+     * @param type the JDBC type (as resolved for the bind)
+     * @return the encoder
+     */
+    protected BindEncoder newBindEncoder(final int type) {
         switch (type) {
             case Types.TINYINT:
             case Types.SMALLINT:
             case Types.INTEGER:
-                setIntegerParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setIntegerParameter(context, connection, statement, index, value, attribute, type);
             case Types.BIGINT:
-                setBigIntegerParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setBigIntegerParameter(context, connection, statement, index, value, attribute, type);
             case Types.REAL:
             case Types.FLOAT:
             case Types.DOUBLE:
-                setDoubleParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setDoubleParameter(context, connection, statement, index, value, attribute, type);
             case Types.NUMERIC:
             case Types.DECIMAL:
-                setDecimalParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setDecimalParameter(context, connection, statement, index, value, attribute, type);
             case Types.DATE:
-                setDateParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setDateParameter(context, connection, statement, index, value, attribute, type);
             case Types.TIME:
-                setTimeParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setTimeParameter(context, connection, statement, index, value, attribute, type);
             case Types.TIMESTAMP:
-                setTimestampParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setTimestampParameter(context, connection, statement, index, value, attribute, type);
             case Types.BIT:
             case Types.BOOLEAN:
-                setBooleanParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setBooleanParameter(context, connection, statement, index, value, attribute, type);
             case Types.SQLXML:
-                setXmlParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setXmlParameter(context, connection, statement, index, value, attribute, type);
             case Types.ARRAY:
-                setArrayParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setArrayParameter(context, connection, statement, index, value, attribute, type);
             case Types.JAVA_OBJECT:
             case Types.OTHER:
-                setObjectParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setObjectParameter(context, connection, statement, index, value, attribute, type);
             case Types.BINARY:
             case Types.VARBINARY:
             case Types.LONGVARBINARY:
             case Types.BLOB:
-                setBlobParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setBlobParameter(context, connection, statement, index, value, attribute, type);
             case Types.CLOB:
             case Types.NCLOB: // JDBC 4.0
-                setClobParameter(context, connection, statement, index, value, attribute, type);
-                break;
+                return (context, connection, statement, index, value, attribute) ->
+                        setClobParameter(context, connection, statement, index, value, attribute, type);
             case Types.CHAR:
             case Types.VARCHAR:
             case Types.NCHAR: // JDBC 4.0
             case Types.NVARCHAR: // JDBC 4.0
             default:
-                setStringParameter(context, connection, statement, index, value, attribute, type);
+                return (context, connection, statement, index, value, attribute) ->
+                        setStringParameter(context, connection, statement, index, value, attribute, type);
         }
     }
 
@@ -2961,14 +4320,63 @@ public class RubyJdbcConnection extends RubyObject {
         return (Connection) dataGetStruct(); // synchronized
     }
 
+    /**
+     * @param connection the connection
+     * @return capabilities of the connection, probed once per (current) connection
+     * and shared with other connections to the same database (e.g. for async queries)
+     * @throws SQLException
+     */
+    protected final DialectCapabilities getCapabilities(final Connection connection) throws SQLException {
+        DialectCapabilities capabilities = this.capabilities; // immutable - safe to share
+        if ( capabilities == null ) {
+            capabilities = this.capabilities = newCapabilities(connection, connection.getMetaData());
+        }
+        return capabilities;
+    }
+
+    /**
+     * Probe the (dialect) capabilities, adapters might override to return their own (extended) capabilities.
+     * @param connection the connection
+     * @param metaData the connection's meta-data
+     * @return capabilities
+     * @throws SQLException
+     */
+    protected DialectCapabilities newCapabilities(final Connection connection, final DatabaseMetaData metaData)
+        throws SQLException {
+        return new DialectCapabilities(metaData);
+    }
+
+    /**
+     * @return the (cached) session state of the current connection
+     */
+    protected final SessionState getSessionState() {
+        return sessionState;
+    }
+
     private void setConnection(final Connection connection) {
+        if ( statementCache != null ) statementCache.clear(); // statements are gone with the connection
         close( getConnectionImpl() ); // close previously open connection if there is one
         dataWrapStruct(connection);
+        sessionState.reset(connection);
+        capabilities = null; // probed (lazily) for the new connection
+        lastUsedAt = connection == null ? 0 : System.nanoTime();
         if ( connection != null ) logDriverUsed(connection);
     }
 
     protected boolean isConnectionValid(final ThreadContext context, final Connection connection) {
         if ( connection == null ) return false;
+        final JdbcEvents.Validate event = new JdbcEvents.Validate();
+        event.begin();
+        final boolean valid = checkConnectionValid(context, connection);
+        if ( event.shouldCommit() ) {
+            event.database = getTimings().getName();
+            event.valid = valid;
+            event.commit();
+        }
+        return valid;
+    }
+
+    private boolean checkConnectionValid(final ThreadContext context, final Connection connection) {
         Statement statement = null;
         try {
             final String aliveSQL = getAliveSQL(context);
@@ -3258,14 +4666,8 @@ public class RubyJdbcConnection extends RubyObject {
         return asFixnum(context, genKeys.getLong(1));
     }
 
-    private transient Boolean supportsGeneratedKeys;
-
     protected boolean supportsGeneratedKeys(final Connection connection) throws SQLException {
-        Boolean supportsGeneratedKeys = this.supportsGeneratedKeys;
-        if (supportsGeneratedKeys == null) {
-            supportsGeneratedKeys = this.supportsGeneratedKeys = (Boolean) connection.getMetaData().supportsGetGeneratedKeys();
-        }
-        return supportsGeneratedKeys;
+        return getCapabilities(connection).supportsGetGeneratedKeys();
     }
 
     /**
@@ -3283,9 +4685,14 @@ public class RubyJdbcConnection extends RubyObject {
         final RubyArray results = newArray(context);
         // [ { 'col1': 1, 'col2': 2 }, { 'col1': 3, 'col2': 4 } ]
 
+        final long start = timingStart();
+        final RowShape shape = rowShape(context, columns);
+        final IRubyObject[] values = new IRubyObject[columns.length]; // re-used (copied into rows)
         while ( resultSet.next() ) {
-            results.append(context, mapRawRow(context, context.runtime, columns, resultSet, this));
+            results.append(context, mapRawRow(context, context.runtime, columns, resultSet, shape, values));
         }
+        recordTiming(StatementTimings.Phase.FETCH, start); // rows are the result
+        rowsFetched(results.size());
         return results;
     }
 
@@ -3300,7 +4707,7 @@ public class RubyJdbcConnection extends RubyObject {
             final IRubyObject[] blockArgs = new IRubyObject[columns.length];
             for ( int i = 0; i < columns.length; i++ ) {
                 final ColumnData column = columns[i];
-                blockArgs[i] = jdbcToRuby(context, runtime, column.index, column.type, resultSet);
+                blockArgs[i] = jdbcToRuby(context, runtime, column, resultSet);
             }
             block.call( context, blockArgs );
         }
@@ -3323,76 +4730,405 @@ public class RubyJdbcConnection extends RubyObject {
         return setupColumns(context, connection, resultSet.getMetaData(), downCase);
     }
 
+    /**
+     * Marks a statement as running for the current <code>withConnection</code> call,
+     * meant to be called before executing, also applies the query timeout.
+     * Running statements might be cancelled (from another thread) using
+     * <code>cancel_running_query</code>.
+     * @param statement the statement about to be executed
+     * @return the statement
+     * @throws SQLException
+     */
+    protected final <S extends Statement> S startStatement(final S statement) throws SQLException {
+        final int timeout = queryTimeout;
+        if ( timeout > 0 || statement.getQueryTimeout() != 0 ) { // (cached) statements might have been used with a timeout
+            statement.setQueryTimeout(timeout);
+        }
+        runningStatements.add(statement);
+        callStatements.add(statement);
+        return statement;
+    }
+
+    private void endStatements(final int started) {
+        for ( int i = callStatements.size() - 1; i >= started; i-- ) {
+            runningStatements.remove(callStatements.remove(i));
+        }
+    }
+
+    // a streaming result's statement is running until the result gets consumed
+    final void endStatement(final Statement statement) {
+        runningStatements.remove(statement);
+    }
+
+    /**
+     * Same as {@link #withConnection(ThreadContext, boolean, Callable)} with the block assumed to
+     * not be idempotent (not retried), reads should opt-in explicitly.
+     */
     protected <T> T withConnection(final ThreadContext context, final Callable<T> block)
             throws RaiseException {
+        return withConnection(context, false, block);
+    }
+
+    /**
+     * @param context
+     * @param idempotent whether the block is safe to be run again (on failures), as the retry policy decides
+     * @param block
+     * @return the block's result
+     * @throws RaiseException
+     * @see #newRetryPolicy(ThreadContext)
+     */
+    protected <T> T withConnection(final ThreadContext context, final boolean idempotent, final Callable<T> block)
+            throws RaiseException {
         try {
-            return withConnection(context, true, block);
+            return doWithConnection(context, true, idempotent, block);
         }
         catch (final SQLException e) {
             return handleException(context, e); // should never happen
         }
     }
 
-    private <T> T withConnection(final ThreadContext context, final boolean handleException,
-                                 final Callable<T> block) throws RaiseException, SQLException {
+    /**
+     * Same as {@link #withConnection(ThreadContext, boolean, Callable)} with the call being timed.
+     * @param context
+     * @param call the call (type) to record timings for
+     * @param sql the statement (for JFR events)
+     * @param idempotent
+     * @param block
+     * @return the block's result
+     * @throws RaiseException
+     * @see #timingStart()
+     * @see #recordTiming(StatementTimings.Phase, long)
+     */
+    protected <T> T withConnection(final ThreadContext context, final StatementTimings.Call call,
+        final IRubyObject sql, final boolean idempotent, final Callable<T> block) throws RaiseException {
+        final StatementTimings.Call previousCall = timedCall; final Thread previousThread = timedThread;
+        final IRubyObject previousSql = timedSql;
+        timedCall = call; timedThread = Thread.currentThread(); timedSql = sql;
+        timedRows = timedRowsAffected = 0; timedBinds = null;
+        final long start = queryStats != null || slowQueryThreshold > 0 ? System.nanoTime() : 0;
+        boolean completed = false;
+        try {
+            final T result = withConnection(context, idempotent, block);
+            completed = true;
+            if ( queryStats != null && sql instanceof RubyString ) {
+                queryStats.record(((RubyString) sql).getByteList(), supportsBackslashEscapes(), System.nanoTime() - start, timedRows, timedRowsAffected);
+            }
+            return result;
+        }
+        finally {
+            if ( slowQueryThreshold > 0 ) {
+                final long elapsed = System.nanoTime() - start;
+                if ( elapsed >= slowQueryThreshold ) captureSlowQuery(context, call, sql, timedBinds, elapsed, ! completed);
+            }
+            timedCall = previousCall; timedThread = previousThread; timedSql = previousSql;
+            executeEvent = null; timedBinds = null;
+        }
+    }
+
+    private static final int SLOW_QUERY_BINDS = 10; // sampled (first) binds
+    private static final int SLOW_QUERY_BIND_LENGTH = 100;
+    private static final int MAX_PLAN_LENGTH = 64 * 1024;
 
-        Exception exception; int retry = 0; int i = 0;
+    private void captureSlowQuery(final ThreadContext context, final StatementTimings.Call call,
+        final IRubyObject sql, final RubyArray binds, final long elapsed, final boolean failed) {
+        if ( ! ( sql instanceof RubyString ) ) return;
+        try {
+            final String[] sampledBinds = sampleBinds(context, binds);
+            final long fingerprint = SqlFingerprint.fingerprint(((RubyString) sql).getByteList(), supportsBackslashEscapes());
+            final String query = sql.toString();
+            final SlowQueryLog.Entry entry = new SlowQueryLog.Entry(System.currentTimeMillis(), elapsed,
+                    call.name().toLowerCase(Locale.ENGLISH), query, fingerprint, sampledBinds, failed);
+            slowQueryLog.add(entry);
+
+            if ( slowQueryExplain && isReadQuery(query) ) {
+                final Connection connection = getConnectionImpl();
+                final String explainPrefix = connection == null ? null : getCapabilities(connection).getExplainPrefix();
+                if ( explainPrefix != null && slowQueryLog.shouldExplain(fingerprint) ) {
+                    final Ruby runtime = context.runtime;
+                    AsyncQuery.runInBackground(() -> entry.setPlan(explain(runtime, explainPrefix + query, binds)));
+                }
+            }
+        }
+        catch (SQLException|RuntimeException e) { // do not fail the (completed) statement
+            debugMessage(context.runtime, "failed to capture slow query: ", e);
+        }
+    }
+
+    private String[] sampleBinds(final ThreadContext context, final RubyArray binds) {
+        if ( binds == null ) return null;
+        final String[] values = new String[Math.min(binds.size(), SLOW_QUERY_BINDS)];
+        for ( int i = 0; i < values.length; i++ ) {
+            IRubyObject value = binds.eltInternal(i);
+            if ( attributeClass.isInstance(value) ) value = valueForDatabase(context, value);
+            final String str = value.inspect().toString();
+            values[i] = str.length() > SLOW_QUERY_BIND_LENGTH ? str.substring(0, SLOW_QUERY_BIND_LENGTH) + "..." : str;
+        }
+        return values;
+    }
+
+    // NOTE: runs on an executor thread using a separate connection
+    private String explain(final Ruby runtime, final String explainSQL, final RubyArray binds) {
+        final ThreadContext context = runtime.getCurrentContext();
+        Connection connection = null; PreparedStatement statement = null; ResultSet resultSet = null;
+        try {
+            connection = newConnection();
+            statement = connection.prepareStatement(explainSQL);
+            if ( queryTimeout > 0 ) statement.setQueryTimeout(queryTimeout);
+            if ( binds != null && hasParameters(statement) ) { // HSQLDB's EXPLAIN PLAN FOR does not take any
+                setStatementParameters(context, connection, statement, binds);
+            }
+            resultSet = statement.executeQuery();
+
+            final int columnCount = resultSet.getMetaData().getColumnCount();
+            final StringBuilder plan = new StringBuilder();
+            while ( resultSet.next() && plan.length() < MAX_PLAN_LENGTH ) {
+                if ( plan.length() > 0 ) plan.append('\n');
+                for ( int i = 1; i <= columnCount; i++ ) {
+                    if ( i > 1 ) plan.append(" | ");
+                    plan.append(resultSet.getString(i));
+                }
+            }
+            return plan.toString();
+        }
+        catch (Exception e) {
+            debugMessage(runtime, "failed to explain slow query: ", e);
+            return "EXPLAIN failed: " + e;
+        }
+        finally {
+            close(resultSet); close(statement); close(connection);
+        }
+    }
+
+    private static boolean hasParameters(final PreparedStatement statement) {
+        try {
+            return statement.getParameterMetaData().getParameterCount() > 0;
+        }
+        catch (SQLException|RuntimeException e) { // not supported by driver
+            return true;
+        }
+    }
+
+    /**
+     * Accounts rows returned by the (timed) call, for query stats.
+     * @param rows row count
+     */
+    protected final void rowsFetched(final long rows) {
+        if ( timedThread == Thread.currentThread() ) timedRows += rows;
+    }
+
+    /**
+     * Accounts rows inserted, updated or deleted by the (timed) call, for query stats.
+     * @param rows (update) row count, negative values (unknown) are ignored
+     */
+    protected final void rowsAffected(final long rows) {
+        if ( rows > 0 && timedThread == Thread.currentThread() ) timedRowsAffected += rows;
+    }
+
+    private static StatementTimings.Call timedCall(final RubyArray binds) {
+        return binds == null || binds.isEmpty() ? StatementTimings.Call.QUERY : StatementTimings.Call.PREPARED_QUERY;
+    }
+
+    /**
+     * @return the start (System.nanoTime()) of a phase, 0 if the current call is not being timed
+     */
+    protected final long timingStart() {
+        return timedCall != null && timedThread == Thread.currentThread() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the phase (of the current call) from the given start.
+     * @param phase the (call) phase
+     * @param start as returned from {@link #timingStart()}
+     * @return the phase end (usable as the next phase start), 0 if not being timed
+     */
+    protected final long recordTiming(final StatementTimings.Phase phase, final long start) {
+        if ( start == 0 ) return 0;
+        final long end = System.nanoTime();
+        getTimings().record(timedCall, phase, end - start);
+        return end;
+    }
+
+    /**
+     * Same as {@link #timingStart()} for executing a statement, also begins a JFR event.
+     * @return the execute start
+     * @see #executeEnd(long)
+     */
+    protected final long executeStart() {
+        final long start = timingStart();
+        if ( start != 0 && JdbcEvents.isExecuteEnabled() ) {
+            final JdbcEvents.Execute event = new JdbcEvents.Execute();
+            event.begin(); executeEvent = event;
+        }
+        return start;
+    }
+
+    /**
+     * Records the execute phase (and commits the JFR event) started with {@link #executeStart()}.
+     * @param start the execute start
+     */
+    protected final void executeEnd(final long start) {
+        recordTiming(StatementTimings.Phase.EXECUTE, start);
+        final JdbcEvents.Execute event = executeEvent;
+        if ( event != null ) {
+            executeEvent = null;
+            if ( event.shouldCommit() ) {
+                event.database = getTimings().getName();
+                event.call = timedCall.name().toLowerCase(Locale.ENGLISH);
+                event.sql = JdbcEvents.sql(timedSql);
+                event.fingerprint = JdbcEvents.fingerprint(timedSql, supportsBackslashEscapes());
+                event.commit();
+            }
+        }
+    }
+
+    private JdbcEvents.ResultMapping resultMappingStart(final long start) {
+        if ( start == 0 || ! JdbcEvents.isResultMappingEnabled() ) return null;
+        final JdbcEvents.ResultMapping event = new JdbcEvents.ResultMapping();
+        event.begin();
+        return event;
+    }
+
+    private void resultMappingEnd(final JdbcEvents.ResultMapping event, final RubyArray rows, final int columns) {
+        if ( event == null ) return;
+        event.end();
+        if ( event.shouldCommit() ) {
+            event.database = getTimings().getName();
+            event.call = timedCall.name().toLowerCase(Locale.ENGLISH);
+            event.sql = JdbcEvents.sql(timedSql);
+            event.fingerprint = JdbcEvents.fingerprint(timedSql, supportsBackslashEscapes());
+            event.rows = rows.size();
+            event.columns = columns;
+            event.bytes = decodedBytes(rows);
+            event.commit();
+        }
+    }
+
+    // NOTE: only string (and binary) values are accounted for
+    private static long decodedBytes(final RubyArray rows) {
+        long bytes = 0;
+        for ( int i = 0; i < rows.size(); i++ ) {
+            final IRubyObject row = rows.eltInternal(i);
+            if ( ! ( row instanceof RubyArray ) ) continue;
+            final RubyArray values = (RubyArray) row;
+            for ( int j = 0; j < values.size(); j++ ) {
+                final IRubyObject value = values.eltInternal(j);
+                if ( value instanceof RubyString ) bytes += ((RubyString) value).getByteList().realSize();
+            }
+        }
+        return bytes;
+    }
 
-        boolean reconnectOnRetry = true; boolean gotConnection = false;
-        do {
+    private <T> T doWithConnection(final ThreadContext context, final boolean handleException,
+                                   final boolean idempotent, final Callable<T> block) throws RaiseException, SQLException {
+        final int started = callStatements.size(); // withConnection might get nested
+        try {
+            return withConnectionRetry(context, handleException, idempotent || retryableCalls > 0, block);
+        }
+        finally {
+            endStatements(started);
+        }
+    }
+
+    private <T> T withConnectionRetry(final ThreadContext context, final boolean handleException,
+                                      final boolean idempotent, final Callable<T> block) throws RaiseException, SQLException {
+        final RetryPolicy retryPolicy = getRetryPolicy();
+
+        Exception exception = null; boolean reconnectOnRetry = false; boolean gotConnection = false;
+        for ( int attempt = 1; ; attempt++ ) {
             boolean autoCommit = true; // retry in-case getAutoCommit throws
             try {
-                if ( retry > 0 ) { // we're retrying running the block
+                if ( attempt > 1 ) { // we're retrying running the block
                     if ( reconnectOnRetry ) {
                         gotConnection = false;
                         debugMessage(context.runtime, "trying to re-connect using a new connection ...");
-                        connectImpl(true); // force a new connection to be created
+                        reconnectImpl(true, exception); // force a new connection to be created
                     }
                     else {
                         debugMessage(context.runtime, "re-trying transient failure on same connection ...");
                     }
                 }
 
+                final long start = timingStart();
+                final JdbcEvents.Acquire acquireEvent = new JdbcEvents.Acquire();
+                acquireEvent.begin();
                 final Connection connection = getConnectionInternal(false); // getConnection()
                 if ( connection == null ) {
                     if ( ! connected ) handleNotConnected(context); // raise ConnectionNotEstablished
                     throw new NoConnectionException();
                 }
+                recordTiming(StatementTimings.Phase.ACQUIRE, start);
+                if ( acquireEvent.shouldCommit() ) {
+                    acquireEvent.database = getTimings().getName();
+                    acquireEvent.commit();
+                }
                 gotConnection = true;
-                autoCommit = connection.getAutoCommit();
-                return block.call(connection);
+                autoCommit = sessionState.getAutoCommit(connection);
+                final T result = block.call(connection);
+                lastUsedAt = System.nanoTime();
+                return result;
             }
             catch (final Exception e) { // SQLException or RuntimeException
                 exception = e;
+                lastUsedAt = 0; // not known to be alive - have active? validate
+                sessionState.invalidateAll();
+                if ( gotConnection ) PooledConnectionFactory.failed(getConnectionImpl(), e);
 
-                if ( i == 0 ) retry = 1;
-
-                if ( ! gotConnection ) { // SQLException from driver/data-source
-                    reconnectOnRetry = connected;
+                final RetryPolicy.Action action;
+                if ( ! gotConnection ) { // SQLException from driver/data-source (block did not run)
+                    action = connected ? RetryPolicy.Action.RECONNECT : RetryPolicy.Action.RETRY;
                 }
-                else if (!autoCommit) {
-                    // never retry inside a transaction
-                    break;
+                else if ( ! autoCommit ) { // never retry inside a transaction
+                    retrySkipsInTransaction++; break;
                 }
-                else if ( isTransient(exception) ) {
-                    reconnectOnRetry = false; // continue;
+                else if ( ! idempotent ) { // might have been (partially) applied
+                    retrySkipsNotIdempotent++; break;
                 }
                 else {
-                    if ( isConnectionValid(context, getConnectionImpl()) ) {
-                        break; // connection not broken yet failed (do not retry)
-                    }
-
-                    if ( ! isRecoverable(exception) ) break;
+                    action = classifyFailure(context, retryPolicy, exception);
+                }
 
-                    reconnectOnRetry = true; // retry calling block again
+                if ( action == RetryPolicy.Action.FAIL ) {
+                    retrySkipsNotRetryable++; break;
+                }
+                if ( attempt >= retryPolicy.getMaxAttempts() ) {
+                    retriesExhausted++; break;
                 }
+
+                reconnectOnRetry = action == RetryPolicy.Action.RECONNECT;
+                if ( reconnectOnRetry ) retryReconnects++; else retries++;
+                backoff(context, retryPolicy.backoffMillis(attempt));
             }
-        } while ( i++ < retry ); // i == 0, retry == 1 means we should retry once
+        }
 
         // (retry) loop ended and we did not return ... exception != null
         return withConnectionError(context, exception, handleException, gotConnection);
     }
 
+    private RetryPolicy.Action classifyFailure(final ThreadContext context, final RetryPolicy retryPolicy,
+        final Exception exception) {
+        if ( exception instanceof SQLTimeoutException ) {
+            return RetryPolicy.Action.FAIL; // timed out or cancelled - do not run again
+        }
+        final RetryPolicy.Action action = retryPolicy.classify(exception);
+        if ( action != null ) return action;
+
+        if ( isTransient(exception) ) return RetryPolicy.Action.RETRY;
+        if ( isConnectionValid(context, getConnectionImpl()) ) {
+            return RetryPolicy.Action.FAIL; // connection not broken yet failed (do not retry)
+        }
+        return isRecoverable(exception) ? RetryPolicy.Action.RECONNECT : RetryPolicy.Action.FAIL;
+    }
+
+    private static void backoff(final ThreadContext context, final long millis) {
+        if ( millis <= 0 ) return;
+        try {
+            context.getThread().sleep(millis);
+        }
+        catch (InterruptedException e) {
+            context.pollThreadEvents(); // Thread#raise, Thread#kill
+        }
+    }
+
     // NOTE: this is meant to be internal - seeing this from the outside is a sign smt is not right!
     private static class NoConnectionException extends RuntimeException {
 
@@ -3514,6 +5250,15 @@ public class RubyJdbcConnection extends RubyObject {
         return JavaUtil.convertJavaToRuby( getRuntime(), object );
     }
 
+    /**
+     * Whether a backslash escapes (the next character) in string literals, as with MySQL,
+     * standard SQL only escapes a quote by doubling it. Used when fingerprinting statements.
+     * @return false by default
+     */
+    protected boolean supportsBackslashEscapes() {
+        return false;
+    }
+
     /**
      * Some databases support schemas and others do not.
      * For ones which do this method should return true, aiding in decisions regarding schema vs database determination.
@@ -3541,6 +5286,38 @@ public class RubyJdbcConnection extends RubyObject {
                StringHelper.startsWithIgnoreCase(sqlBytes, CALL);
     }
 
+    private static final byte[] EXPLAIN = new byte[] { 'e','x','p','l','a','i','n' };
+
+    /**
+     * @param sql the SQL (a Ruby string)
+     * @return whether the SQL is a (side-effect free) read, thus safe to retry
+     */
+    protected static boolean isReadQuery(final IRubyObject sql) {
+        if ( ! ( sql instanceof RubyString ) ) return false;
+        final ByteList bytes = ((RubyString) sql).getByteList();
+        int start = 0; final int len = bytes.getRealSize();
+        while ( start < len && ( Character.isWhitespace(bytes.get(start)) || bytes.get(start) == '(' ) ) start++;
+        if ( start == len ) return false;
+        final ByteList sqlBytes = start == 0 ? bytes : bytes.makeShared(start, len - start);
+        // NOTE: WITH might be data-modifying (PostgreSQL) - not considered a read
+        return StringHelper.startsWithIgnoreCase(sqlBytes, SELECT) ||
+               StringHelper.startsWithIgnoreCase(sqlBytes, SHOW) ||
+               StringHelper.startsWithIgnoreCase(sqlBytes, EXPLAIN);
+    }
+
+    /**
+     * @param sql the SQL
+     * @return whether the SQL is a (side-effect free) read, thus safe to retry
+     * @see #isReadQuery(IRubyObject)
+     */
+    protected static boolean isReadQuery(final String sql) {
+        int start = 0; final int len = sql.length();
+        while ( start < len && ( Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(' ) ) start++;
+        return sql.regionMatches(true, start, "select", 0, 6) ||
+               sql.regionMatches(true, start, "show", 0, 4) ||
+               sql.regionMatches(true, start, "explain", 0, 7);
+    }
+
     private static final byte[] INSERT = new byte[] { 'i','n','s','e','r','t' };
 
     @JRubyMethod(name = "insert?", required = 1, meta = true, frame = false)
@@ -3563,27 +5340,27 @@ public class RubyJdbcConnection extends RubyObject {
 
         for (int i = 0; i < columns.length; i++) {
             final ColumnData column = columns[i];
-            row[i] = connection.jdbcToRuby(context, runtime, column.index, column.type, resultSet);
+            row[i] = connection.jdbcToRuby(context, runtime, column, resultSet);
         }
 
         return newArrayNoCopy(context, row);
     }
 
-    private static IRubyObject mapRawRow(final ThreadContext context, final Ruby runtime,
+    private IRubyObject mapRawRow(final ThreadContext context, final Ruby runtime,
         final ColumnData[] columns, final ResultSet resultSet,
-        final RubyJdbcConnection connection) throws SQLException {
-
-        final RubyHash row = new RubyHash(runtime, columns.length);
+        final RowShape shape, final IRubyObject[] values) throws SQLException {
 
         for ( int i = 0; i < columns.length; i++ ) {
-            final ColumnData column = columns[i];
-            // NOTE: we know keys are always String so maybe we could take it even further ?!
-            row.fastASetCheckString(runtime, column.getName(context),
-                connection.jdbcToRuby(context, runtime, column.index, column.type, resultSet)
-            );
+            values[i] = jdbcToRuby(context, runtime, columns[i], resultSet);
         }
 
-        return row;
+        return shape.newRow(context, values);
+    }
+
+    private static RowShape rowShape(final ThreadContext context, final ColumnData[] columns) {
+        final RubyString[] keys = new RubyString[columns.length];
+        for ( int i = 0; i < columns.length; i++ ) keys[i] = columns[i].getName(context);
+        return new RowShape(keys);
     }
 
     protected static IRubyObject newResult(final ThreadContext context, ColumnData[] columns, IRubyObject rows) {
@@ -3663,7 +5440,7 @@ public class RubyJdbcConnection extends RubyObject {
         if ( schema != null && ! databaseSupportsSchemas() ) {
             catalog = schema;
         }
-        if ( catalog == null ) catalog = connection.getCatalog();
+        if ( catalog == null ) catalog = sessionState.getCatalog(connection);
 
         return new TableName(catalog, schema, name);
     }
@@ -3687,9 +5464,12 @@ public class RubyJdbcConnection extends RubyObject {
     }
 
     protected IRubyObject valueForDatabase(final ThreadContext context, final IRubyObject attribute) {
-        return attribute.callMethod(context, "value_for_database");
+        return value_for_database.call(context, attribute, attribute);
     }
 
+    // ActiveModel::Attribute#value_for_database
+    private final CachingCallSite value_for_database = new FunctionalCachingCallSite("value_for_database");
+
     // FIXME: This should not be static and will be exposed via api in connection as instance method.
     public static final StringCache STRING_CACHE = new StringCache();
 
@@ -3697,6 +5477,44 @@ public class RubyJdbcConnection extends RubyObject {
         return STRING_CACHE.get(context, str);
     }
 
+    /**
+     * @param context current thread context
+     * @param self the JdbcConnection class
+     * @return (column/table name) string cache counters (size, max_size, hits, misses and evictions) as a Hash
+     */
+    @JRubyMethod(name = "string_cache_stats", meta = true)
+    public static IRubyObject string_cache_stats(final ThreadContext context, final IRubyObject self) {
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        stats.fastASet(runtime.newSymbol("size"), runtime.newFixnum(STRING_CACHE.size()));
+        stats.fastASet(runtime.newSymbol("max_size"), runtime.newFixnum(STRING_CACHE.getMaxSize()));
+        stats.fastASet(runtime.newSymbol("hits"), runtime.newFixnum(STRING_CACHE.getHits()));
+        stats.fastASet(runtime.newSymbol("misses"), runtime.newFixnum(STRING_CACHE.getMisses()));
+        stats.fastASet(runtime.newSymbol("evictions"), runtime.newFixnum(STRING_CACHE.getEvictions()));
+        return stats;
+    }
+
+    /**
+     * @param context current thread context
+     * @return (string value) de-duplication counters per column, nil unless <code>string_dedup_columns</code> is set
+     */
+    @JRubyMethod(name = "string_dedup_stats")
+    public IRubyObject string_dedup_stats(final ThreadContext context) {
+        if ( stringDedups == null ) return context.nil;
+
+        final Ruby runtime = context.runtime;
+        final RubyHash stats = RubyHash.newHash(runtime);
+        synchronized (stringDedups) {
+            for ( Map.Entry<String, StringDedup> entry : stringDedups.entrySet() ) {
+                final RubyHash column = RubyHash.newHash(runtime);
+                column.fastASet(runtime.newSymbol("hits"), runtime.newFixnum(entry.getValue().getHits()));
+                column.fastASet(runtime.newSymbol("misses"), runtime.newFixnum(entry.getValue().getMisses()));
+                stats.fastASet(runtime.newString(entry.getKey()), column);
+            }
+        }
+        return stats;
+    }
+
     protected static final class ColumnData {
 
         @Deprecated
@@ -3706,6 +5524,9 @@ public class RubyJdbcConnection extends RubyObject {
 
         private final String label;
 
+        StringDedup dedup; // string_dedup_columns
+        ColumnDecoder decoder; // resolved along with the column
+
         @Deprecated
         public ColumnData(RubyString name, int type, int idx) {
             this.name = name;
@@ -3731,7 +5552,7 @@ public class RubyJdbcConnection extends RubyObject {
             return label;
         }
 
-        RubyString getName(final ThreadContext context) {
+        public RubyString getName(final ThreadContext context) {
             if ( name != null ) return name;
             return name = cachedString(context, label);
         }
@@ -3761,7 +5582,9 @@ public class RubyJdbcConnection extends RubyObject {
             }
 
             final int columnType = resultMetaData.getColumnType(i);
-            columns[i - 1] = new ColumnData(context, name, columnType, i);
+            final ColumnData column = columns[i - 1] = new ColumnData(context, name, columnType, i);
+            column.dedup = stringDedup(name, columnType);
+            column.decoder = columnDecoder(context, resultMetaData, i, columnType, column.dedup);
         }
 
         return columns;
@@ -0,0 +1,113 @@
+package arjdbc.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A (cached) model of the connection's session state, so that reading the
+ * auto-commit mode, isolation level, read-only flag or catalog does not need
+ * to go to the driver (a round-trip with some drivers) every time, and setting
+ * them to the current value is a no-op.
+ * <p>
+ * Values are resolved lazily and updated by the setters here, the state gets
+ * reset whenever the connection changes or might have been changed by others
+ * e.g. after executing (raw) SQL or handing out the JDBC connection to Ruby.
+ * Calls with a connection other than the tracked one go straight to the driver.
+ * </p>
+ * NOTE: not thread-safe, meant to be used by a connection (one thread at a time).
+ */
+public final class SessionState {
+
+    private static final int UNKNOWN = -1;
+
+    private Connection connection;
+
+    private int autoCommit = UNKNOWN; // 0 or 1
+    private int isolation = UNKNOWN; // as reported by the driver
+    private int isolationSet = UNKNOWN; // last set (drivers might report a different level)
+    private int readOnly = UNKNOWN; // 0 or 1 as reported by the driver
+    private int readOnlySet = UNKNOWN; // last set (drivers might ignore the hint)
+    private String catalog; private boolean catalogKnown;
+
+    SessionState() { /* */ }
+
+    /**
+     * Start tracking the given connection (with an unknown state).
+     * @param connection the (new) connection or null
+     */
+    void reset(final Connection connection) {
+        this.connection = connection;
+        autoCommit = UNKNOWN;
+        invalidate();
+    }
+
+    /**
+     * Forget the cached state (except for the auto-commit mode, which is only
+     * changed using the JDBC API) as it might have changed e.g. using SQL.
+     */
+    public void invalidate() {
+        isolation = isolationSet = readOnly = readOnlySet = UNKNOWN;
+        catalog = null; catalogKnown = false;
+    }
+
+    /**
+     * Forget all of the cached state.
+     */
+    public void invalidateAll() {
+        autoCommit = UNKNOWN;
+        invalidate();
+    }
+
+    public boolean getAutoCommit(final Connection connection) throws SQLException {
+        if (connection != this.connection) return connection.getAutoCommit();
+        if (autoCommit == UNKNOWN) autoCommit = connection.getAutoCommit() ? 1 : 0;
+        return autoCommit == 1;
+    }
+
+    public void setAutoCommit(final Connection connection, final boolean autoCommit) throws SQLException {
+        if (connection != this.connection) { connection.setAutoCommit(autoCommit); return; }
+        final int value = autoCommit ? 1 : 0;
+        if (this.autoCommit == value) return;
+        this.autoCommit = UNKNOWN; // in case setting fails
+        connection.setAutoCommit(autoCommit);
+        this.autoCommit = value;
+    }
+
+    public int getTransactionIsolation(final Connection connection) throws SQLException {
+        if (connection != this.connection) return connection.getTransactionIsolation();
+        if (isolation == UNKNOWN) isolation = connection.getTransactionIsolation();
+        return isolation;
+    }
+
+    public void setTransactionIsolation(final Connection connection, final int level) throws SQLException {
+        if (connection != this.connection) { connection.setTransactionIsolation(level); return; }
+        if (isolationSet == level || isolation == level) return;
+        isolation = isolationSet = UNKNOWN; // re-read on get, in case the driver went with another level
+        connection.setTransactionIsolation(level);
+        isolationSet = level;
+    }
+
+    public boolean isReadOnly(final Connection connection) throws SQLException {
+        if (connection != this.connection) return connection.isReadOnly();
+        if (readOnly == UNKNOWN) readOnly = connection.isReadOnly() ? 1 : 0;
+        return readOnly == 1;
+    }
+
+    public void setReadOnly(final Connection connection, final boolean readOnly) throws SQLException {
+        if (connection != this.connection) { connection.setReadOnly(readOnly); return; }
+        final int value = readOnly ? 1 : 0;
+        if (readOnlySet == value || this.readOnly == value) return;
+        this.readOnly = readOnlySet = UNKNOWN; // re-read on get, the driver might ignore the hint
+        connection.setReadOnly(readOnly);
+        readOnlySet = value;
+    }
+
+    public String getCatalog(final Connection connection) throws SQLException {
+        if (connection != this.connection) return connection.getCatalog();
+        if (!catalogKnown) {
+            catalog = connection.getCatalog(); catalogKnown = true;
+        }
+        return catalog;
+    }
+
+}
@@ -0,0 +1,128 @@
+package arjdbc.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A (bounded) ring buffer of statements that took longer than the configured threshold,
+ * shared by all connections to the same target - newer captures overwrite the oldest.
+ * <p>
+ * Configured (in <i>database.yml</i>) using <code>slow_query_threshold</code> (in seconds),
+ * <code>slow_query_log_size</code> (number of captures kept) and <code>slow_query_explain</code>
+ * (false to not EXPLAIN slow queries, where the database supports it).
+ * </p>
+ */
+public final class SlowQueryLog {
+
+    public static final int DEFAULT_SIZE = 100;
+
+    private static final long EXPLAIN_INTERVAL = 60_000; // ms - not explaining the same (fingerprint) more often
+    private static final int MAX_EXPLAINED = 1000;
+
+    private static final ConcurrentHashMap<String, SlowQueryLog> logs = new ConcurrentHashMap<>(8);
+
+    /**
+     * @param name identifies the connection target (same as {@link StatementTimings})
+     * @param size the (ring buffer) size (only used when created)
+     * @return log shared for the given name
+     */
+    static SlowQueryLog shared(final String name, final int size) {
+        return logs.computeIfAbsent(name, n -> new SlowQueryLog(size));
+    }
+
+    public static final class Entry {
+
+        private final long at; // ms (wall clock)
+        private final long elapsed; // ns
+        private final String call;
+        private final String sql;
+        private final long fingerprint;
+        private final String[] binds; // sampled (inspected) values
+        private final boolean failed;
+        private volatile String plan;
+
+        Entry(final long at, final long elapsed, final String call, final String sql, final long fingerprint,
+              final String[] binds, final boolean failed) {
+            this.at = at;
+            this.elapsed = elapsed;
+            this.call = call;
+            this.sql = sql;
+            this.fingerprint = fingerprint;
+            this.binds = binds;
+            this.failed = failed;
+        }
+
+        public long getAt() { return at; }
+
+        public long getElapsed() { return elapsed; }
+
+        public String getCall() { return call; }
+
+        public String getSql() { return sql; }
+
+        public long getFingerprint() { return fingerprint; }
+
+        public String[] getBinds() { return binds; }
+
+        /**
+         * @return whether the statement failed e.g. timed out
+         */
+        public boolean isFailed() { return failed; }
+
+        /**
+         * @return the (EXPLAIN) plan, null if not explained (or not yet)
+         */
+        public String getPlan() { return plan; }
+
+        void setPlan(final String plan) { this.plan = plan; }
+
+    }
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicLong next = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> explainedAt = new ConcurrentHashMap<>();
+
+    SlowQueryLog(final int size) {
+        this.entries = new AtomicReferenceArray<>(Math.max(size, 1));
+    }
+
+    void add(final Entry entry) {
+        entries.set((int) (next.getAndIncrement() % entries.length()), entry);
+    }
+
+    /**
+     * @param fingerprint the statement's fingerprint
+     * @return whether to EXPLAIN the statement (not explained recently)
+     */
+    boolean shouldExplain(final long fingerprint) {
+        final long now = System.currentTimeMillis();
+        if ( explainedAt.size() >= MAX_EXPLAINED ) explainedAt.clear();
+        final Long last = explainedAt.get(fingerprint);
+        if ( last != null && now - last < EXPLAIN_INTERVAL ) return false;
+        return last == null ? explainedAt.putIfAbsent(fingerprint, now) == null : explainedAt.replace(fingerprint, last, now);
+    }
+
+    /**
+     * @return captured entries, newest first
+     */
+    public List<Entry> getEntries() {
+        final int size = entries.length();
+        final long last = next.get();
+        final List<Entry> list = new ArrayList<>(size);
+        for ( long i = last - 1; i >= 0 && i >= last - size; i-- ) {
+            final Entry entry = entries.get((int) (i % size));
+            if ( entry != null ) list.add(entry);
+        }
+        return list;
+    }
+
+    public int getSize() { return entries.length(); }
+
+    public void clear() {
+        for ( int i = 0; i < entries.length(); i++ ) entries.set(i, null);
+    }
+
+}
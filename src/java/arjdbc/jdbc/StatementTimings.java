@@ -0,0 +1,123 @@
+package arjdbc.jdbc;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import arjdbc.util.LatencyHistogram;
+
+/**
+ * Statement latency histograms, per call type and phase - so that time spent in
+ * the database (driver) can be told apart from time spent in the adapter.
+ * Shared (and exported through JMX as <code>arjdbc:type=StatementTimings,name=...</code>)
+ * by all connections to the same target.
+ *
+ * @see RubyJdbcConnection#stats(org.jruby.runtime.ThreadContext)
+ */
+public final class StatementTimings implements StatementTimingsMXBean {
+
+    public enum Call { QUERY, PREPARED_QUERY, UPDATE, INSERT }
+
+    public enum Phase {
+        /** getting the (JDBC) connection */
+        ACQUIRE,
+        /** executing the statement (driver) */
+        EXECUTE,
+        /** fetching rows and decoding values */
+        FETCH,
+        /** constructing the (Ruby) result */
+        RESULT
+    }
+
+    private static final ConcurrentHashMap<String, StatementTimings> timings = new ConcurrentHashMap<>(8);
+
+    /**
+     * @param name identifies the connection target e.g. URL and user (should not contain secrets)
+     * @return timings shared for the given name
+     */
+    static StatementTimings shared(final String name) {
+        return timings.computeIfAbsent(name, StatementTimings::new);
+    }
+
+    private final String name;
+    private final LatencyHistogram[] histograms;
+
+    private StatementTimings(final String name) {
+        this.name = name;
+        this.histograms = new LatencyHistogram[Call.values().length * Phase.values().length];
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+        register();
+    }
+
+    private void register() {
+        try {
+            final ObjectName objectName = new ObjectName("arjdbc:type=StatementTimings,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        }
+        catch (JMException|SecurityException e) {
+            RubyJdbcConnection.debugMessage(null, "failed to register statement timings MBean: " + e);
+        }
+    }
+
+    public LatencyHistogram get(final Call call, final Phase phase) {
+        return histograms[call.ordinal() * Phase.values().length + phase.ordinal()];
+    }
+
+    void record(final Call call, final Phase phase, final long nanos) {
+        get(call, phase).record(nanos);
+    }
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (Call call : Call.values()) {
+            for (Phase phase : Phase.values()) {
+                final long count = get(call, phase).getCount();
+                if (count > 0) counts.put(key(call, phase), count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMillis() { return millis(LatencyHistogram::getMean); }
+
+    @Override
+    public Map<String, Double> getMedianMillis() { return millis(h -> h.getPercentile(50)); }
+
+    @Override
+    public Map<String, Double> getP99Millis() { return millis(h -> h.getPercentile(99)); }
+
+    @Override
+    public Map<String, Double> getMaxMillis() { return millis(LatencyHistogram::getMax); }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) histogram.reset();
+    }
+
+    private Map<String, Double> millis(final ToDoubleFunction<LatencyHistogram> value) {
+        final Map<String, Double> values = new LinkedHashMap<>();
+        for (Call call : Call.values()) {
+            for (Phase phase : Phase.values()) {
+                final LatencyHistogram histogram = get(call, phase);
+                if (histogram.getCount() > 0) values.put(key(call, phase), value.applyAsDouble(histogram) / 1_000_000);
+            }
+        }
+        return values;
+    }
+
+    static String key(final Call call, final Phase phase) {
+        return call.name().toLowerCase(Locale.ENGLISH) + '.' + phase.name().toLowerCase(Locale.ENGLISH);
+    }
+
+}
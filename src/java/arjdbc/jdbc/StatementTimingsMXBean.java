@@ -0,0 +1,25 @@
+package arjdbc.jdbc;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link StatementTimings}, keys are <code>call.phase</code> e.g.
+ * <code>prepared_query.execute</code> and times are in milliseconds.
+ */
+public interface StatementTimingsMXBean {
+
+    String getName();
+
+    Map<String, Long> getCounts();
+
+    Map<String, Double> getMeanMillis();
+
+    Map<String, Double> getMedianMillis();
+
+    Map<String, Double> getP99Millis();
+
+    Map<String, Double> getMaxMillis();
+
+    void reset();
+
+}
@@ -0,0 +1,178 @@
+package arjdbc.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.jruby.Ruby;
+import org.jruby.RubyClass;
+import org.jruby.RubyEnumerator;
+import org.jruby.RubyHash;
+import org.jruby.RubyObject;
+import org.jruby.anno.JRubyMethod;
+import org.jruby.runtime.Block;
+import org.jruby.runtime.ObjectAllocator;
+import org.jruby.runtime.ThreadContext;
+import org.jruby.runtime.builtin.IRubyObject;
+
+import static org.jruby.api.Access.enumerableModule;
+import static org.jruby.api.Access.objectClass;
+import static org.jruby.api.Create.newArrayNoCopy;
+import static org.jruby.api.Error.runtimeError;
+
+/**
+ * A (one-pass) query result reading rows off an open cursor while being iterated,
+ * rows get decoded a chunk (of the configured fetch size) at a time.
+ * <p>
+ * The statement stays open until all rows are consumed, iteration raises (or breaks)
+ * or the result gets closed. Only executing the query happens within the connection's
+ * (retry-ing) <code>withConnection</code>, once rows are being read a failure is raised
+ * as is - some rows might have been yielded already.
+ * </p>
+ *
+ * @see RubyJdbcConnection#execute_query_stream(ThreadContext, IRubyObject[])
+ */
+public class StreamingResult extends RubyObject {
+
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final RubyJdbcConnection connection;
+    private final RubyJdbcConnection.ColumnData[] columns;
+    private final int chunkSize;
+
+    private Statement statement;
+    private ResultSet resultSet;
+    private long rowsRead; // off the cursor (decoded) so far
+
+    static RubyClass createStreamingResultClass(final ThreadContext context, final RubyClass jdbcConnection) {
+        final RubyClass clazz = jdbcConnection.
+                defineClassUnder(context, "StreamingResult", objectClass(context), ObjectAllocator.NOT_ALLOCATABLE_ALLOCATOR).
+                defineMethods(context, StreamingResult.class);
+        clazz.includeModule(context, enumerableModule(context));
+        return clazz;
+    }
+
+    StreamingResult(final ThreadContext context, final RubyClass clazz, final RubyJdbcConnection connection,
+        final Statement statement, final ResultSet resultSet, final RubyJdbcConnection.ColumnData[] columns,
+        final int chunkSize) {
+        super(context.runtime, clazz);
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.columns = columns;
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * @param context current thread context
+     * @return column names
+     */
+    @JRubyMethod
+    public IRubyObject columns(final ThreadContext context) {
+        final IRubyObject[] names = new IRubyObject[columns.length];
+        for (int i = 0; i < columns.length; i++) names[i] = columns[i].getName(context);
+        return newArrayNoCopy(context, names);
+    }
+
+    /**
+     * Yields rows as hashes (column name to value) the same way <code>ActiveRecord::Result#each</code> does.
+     * @param context current thread context
+     * @param block the block to yield rows to
+     * @return self
+     */
+    @JRubyMethod
+    public IRubyObject each(final ThreadContext context, final Block block) {
+        if (!block.isGiven()) return RubyEnumerator.enumeratorize(context.runtime, this, "each");
+        return iterate(context, block, true);
+    }
+
+    /**
+     * Yields rows as arrays of (column) values.
+     * @param context current thread context
+     * @param block the block to yield rows to
+     * @return self
+     */
+    @JRubyMethod
+    public IRubyObject each_row(final ThreadContext context, final Block block) {
+        if (!block.isGiven()) return RubyEnumerator.enumeratorize(context.runtime, this, "each_row");
+        return iterate(context, block, false);
+    }
+
+    /**
+     * @param context current thread context
+     * @return the number of rows decoded at a time
+     */
+    @JRubyMethod
+    public IRubyObject chunk_size(final ThreadContext context) {
+        return context.runtime.newFixnum(chunkSize);
+    }
+
+    /**
+     * @param context current thread context
+     * @return the number of rows read (and decoded) so far, rows get read a chunk ahead of being yielded
+     */
+    @JRubyMethod
+    public IRubyObject rows_read(final ThreadContext context) {
+        return context.runtime.newFixnum(rowsRead);
+    }
+
+    @JRubyMethod
+    public IRubyObject close(final ThreadContext context) {
+        close();
+        return context.nil;
+    }
+
+    @JRubyMethod(name = "closed?")
+    public IRubyObject closed_p(final ThreadContext context) {
+        return context.runtime.newBoolean(resultSet == null);
+    }
+
+    private IRubyObject iterate(final ThreadContext context, final Block block, final boolean hashes) {
+        if (resultSet == null) throw runtimeError(context, "result is closed (rows can only be iterated once)");
+
+        final Ruby runtime = context.runtime;
+        final IRubyObject[][] chunk = new IRubyObject[chunkSize][];
+        try {
+            int size;
+            do {
+                size = 0;
+                while (size < chunkSize && resultSet.next()) {
+                    final IRubyObject[] row = new IRubyObject[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        row[i] = connection.jdbcToRuby(context, runtime, columns[i], resultSet);
+                    }
+                    chunk[size++] = row; rowsRead++;
+                }
+                for (int r = 0; r < size; r++) {
+                    final IRubyObject[] row = chunk[r]; chunk[r] = null;
+                    block.yield(context, hashes ? toHash(context, row) : newArrayNoCopy(context, row));
+                }
+            } while (size == chunkSize);
+        }
+        catch (SQLException e) {
+            return connection.handleException(context, e);
+        }
+        finally {
+            close();
+        }
+        return this;
+    }
+
+    private RubyHash toHash(final ThreadContext context, final IRubyObject[] row) {
+        final RubyHash hash = new RubyHash(context.runtime, columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            hash.fastASetCheckString(context.runtime, columns[i].getName(context), row[i]);
+        }
+        return hash;
+    }
+
+    private void close() {
+        if (resultSet != null) {
+            connection.endStatement(statement);
+            RubyJdbcConnection.close(resultSet);
+            RubyJdbcConnection.close(statement);
+            resultSet = null; statement = null;
+        }
+    }
+
+}
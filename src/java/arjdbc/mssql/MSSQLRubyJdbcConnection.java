@@ -26,7 +26,9 @@
 package arjdbc.mssql;
 
 import arjdbc.jdbc.Callable;
+import arjdbc.jdbc.ColumnDecoders;
 import arjdbc.jdbc.RubyJdbcConnection;
+import arjdbc.jdbc.StatementTimings;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -154,16 +156,19 @@ public class MSSQLRubyJdbcConnection extends RubyJdbcConnection {
     @JRubyMethod(name = "execute", required = 1)
     public IRubyObject execute(final ThreadContext context, final IRubyObject sql) {
         final String query = sqlString(sql);
-        return withConnection(context, new Callable<IRubyObject>() {
+        return withConnection(context, StatementTimings.Call.QUERY, sql, isReadQuery(sql), new Callable<IRubyObject>() {
             public IRubyObject call(final Connection connection) throws SQLException {
                 Statement statement = null;
                 try {
-                    statement = createStatement(context, connection);
+                    statement = startStatement(createStatement(context, connection));
 
                     // For DBs that do support multiple statements, lets return the last result set
                     // to be consistent with AR
+                    final long start = executeStart();
                     boolean hasResultSet = doExecute(statement, query);
+                    executeEnd(start);
                     int updateCount = statement.getUpdateCount();
+                    rowsAffected(updateCount);
 
                     final List<IRubyObject> results = new ArrayList<IRubyObject>();
                     ResultSet resultSet;
@@ -374,41 +379,39 @@ public class MSSQLRubyJdbcConnection extends RubyJdbcConnection {
      * Also handle datetimeoffset values here
      */
     @Override
-    protected IRubyObject jdbcToRuby(
-        final ThreadContext context, final Ruby runtime,
-        final int column, int type, final ResultSet resultSet)
-        throws SQLException {
+    protected void registerColumnDecoders(final ColumnDecoders decoders) {
+        super.registerColumnDecoders(decoders);
+        decoders.register(decoders.get(Types.CLOB), Types.LONGVARCHAR, Types.LONGNVARCHAR);
+        decoders.register(this::dateTimeOffsetToRuby, DATETIMEOFFSET_TYPE);
+    }
 
-        if (type == DATETIMEOFFSET_TYPE) {
+    private IRubyObject dateTimeOffsetToRuby(final ThreadContext context,
+        final ResultSet resultSet, final int column) throws SQLException {
 
-            Object dto = resultSet.getObject(column); // Returns a microsoft.sql.DateTimeOffset
+        Object dto = resultSet.getObject(column); // Returns a microsoft.sql.DateTimeOffset
 
-            if (dto == null) return context.nil;
+        if (dto == null) return context.nil;
 
-            try {
+        try {
 
-                int minutes = (int) DateTimeOffsetGetMinutesOffsetMethod.invoke(dto);
-                DateTimeZone zone = DateTimeZone.forOffsetHoursMinutes(minutes / 60, minutes % 60);
-                Timestamp ts = (Timestamp) DateTimeOffsetGetTimestampMethod.invoke(dto);
+            int minutes = (int) DateTimeOffsetGetMinutesOffsetMethod.invoke(dto);
+            DateTimeZone zone = DateTimeZone.forOffsetHoursMinutes(minutes / 60, minutes % 60);
+            Timestamp ts = (Timestamp) DateTimeOffsetGetTimestampMethod.invoke(dto);
 
-                int nanos = ts.getNanos(); // max 999-999-999
-                nanos = nanos % 1000000;
+            int nanos = ts.getNanos(); // max 999-999-999
+            nanos = nanos % 1000000;
 
-                // We have to do this differently than the newTime helper because the Timestamp loses its zone information when passed around
-                DateTime dateTime = new DateTime(ts.getTime(), zone);
-                return RubyTime.newTime(context.runtime, dateTime, nanos);
+            // We have to do this differently than the newTime helper because the Timestamp loses its zone information when passed around
+            DateTime dateTime = new DateTime(ts.getTime(), zone);
+            return RubyTime.newTime(context.runtime, dateTime, nanos);
 
-            } catch (IllegalAccessException e) {
-                debugMessage(runtime, e.getMessage());
-                return context.nil;
-            } catch (InvocationTargetException e) {
-                debugMessage(runtime, e.getMessage());
-                return context.nil;
-            }
+        } catch (IllegalAccessException e) {
+            debugMessage(context.runtime, e.getMessage());
+            return context.nil;
+        } catch (InvocationTargetException e) {
+            debugMessage(context.runtime, e.getMessage());
+            return context.nil;
         }
-
-        if (type == Types.LONGVARCHAR || type == Types.LONGNVARCHAR) type = Types.CLOB;
-        return super.jdbcToRuby(context, runtime, column, type, resultSet);
     }
 
     /**
@@ -26,12 +26,14 @@
 package arjdbc.mysql;
 
 import arjdbc.jdbc.Callable;
+import arjdbc.jdbc.ColumnDecoders;
 import arjdbc.jdbc.DriverWrapper;
 import arjdbc.jdbc.RubyJdbcConnection;
 import arjdbc.util.DateTimeUtils;
 import org.jruby.Ruby;
 import org.jruby.RubyBoolean;
 import org.jruby.RubyClass;
+import org.jruby.RubyHash;
 import org.jruby.anno.JRubyMethod;
 import org.jruby.exceptions.RaiseException;
 import org.jruby.runtime.ObjectAllocator;
@@ -89,7 +91,7 @@ public class MySQLRubyJdbcConnection extends RubyJdbcConnection {
 
     @JRubyMethod(name = { "full_version" })
     public IRubyObject db_version(final ThreadContext context) {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final DatabaseMetaData metaData = connection.getMetaData();
             return newString(context, metaData.getDatabaseProductVersion());
         });
@@ -183,14 +185,35 @@ public class MySQLRubyJdbcConnection extends RubyJdbcConnection {
         return statement.execute(query, Statement.RETURN_GENERATED_KEYS);
     }
 
+    @Override // unless NO_BACKSLASH_ESCAPES (SQL mode)
+    protected boolean supportsBackslashEscapes() {
+        return true;
+    }
+
+    @Override // Connector/J reads all rows on execute, unless streaming (row-by-row) or using cursors
+    protected int streamingFetchSize(final ThreadContext context, final Connection connection, final int chunkSize)
+        throws SQLException {
+        if ( ! connection.getMetaData().getDriverName().startsWith("MySQL") ) return chunkSize; // MariaDB
+        return useCursorFetch(context) ? chunkSize : Integer.MIN_VALUE;
+    }
+
+    private boolean useCursorFetch(final ThreadContext context) {
+        final IRubyObject properties = getConfigValue(context, "properties");
+        if ( properties instanceof RubyHash ) {
+            final IRubyObject value = ((RubyHash) properties).op_aref(context, newString(context, "useCursorFetch"));
+            if ( value != context.nil ) return "true".equals(value.toString());
+        }
+        final IRubyObject url = getConfigValue(context, "url");
+        return url != context.nil && url.toString().contains("useCursorFetch=true");
+    }
+
     @Override
-    protected IRubyObject jdbcToRuby(final ThreadContext context, final Ruby runtime,
-        final int column, final int type, final ResultSet resultSet) throws SQLException {
-        if ( type == Types.BIT ) {
+    protected void registerColumnDecoders(final ColumnDecoders decoders) {
+        super.registerColumnDecoders(decoders);
+        decoders.register((context, resultSet, column) -> {
             final int value = resultSet.getInt(column);
-            return resultSet.wasNull() ? context.nil : runtime.newFixnum(value);
-        }
-        return super.jdbcToRuby(context, runtime, column, type, resultSet);
+            return resultSet.wasNull() ? context.nil : context.runtime.newFixnum(value);
+        }, Types.BIT);
     }
 
     @Override
@@ -236,17 +259,11 @@ public class MySQLRubyJdbcConnection extends RubyJdbcConnection {
         return value; // MySQL does not storesUpperCaseIdentifiers() :
     }
 
-    private transient Boolean lowerCaseIdentifiers;
-
     @Override
     protected final String caseConvertIdentifierForJdbc(
         final Connection connection, final String value) throws SQLException {
         if ( value == null ) return null;
-        Boolean lowerCase = lowerCaseIdentifiers;
-        if (lowerCase == null) {
-            lowerCase = lowerCaseIdentifiers = connection.getMetaData().storesLowerCaseIdentifiers();
-        }
-        return lowerCase ? value.toLowerCase() : value;
+        return getCapabilities(connection).storesLowerCaseIdentifiers() ? value.toLowerCase() : value;
     }
 
     @Override
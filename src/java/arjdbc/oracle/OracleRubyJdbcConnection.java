@@ -359,7 +359,7 @@ public class OracleRubyJdbcConnection extends RubyJdbcConnection {
             tableOwner = (defaultOwner == null && dbLink.length() > 0) ? selectOwner(context, dbLink) : defaultOwner;
         }
 
-        return withConnection(context, new Callable<RubyArray>() {
+        return withConnection(context, true, new Callable<RubyArray>() {
             public RubyArray call(final Connection connection) throws SQLException {
                 String owner = tableOwner == null ? connection.getMetaData().getUserName() : tableOwner;
                 final String sql =
@@ -416,7 +416,7 @@ public class OracleRubyJdbcConnection extends RubyJdbcConnection {
     }
 
     private String selectOwner(final ThreadContext context, final String dbLink) {
-        return withConnection(context, new Callable<String>() {
+        return withConnection(context, true, new Callable<String>() {
             public String call(final Connection connection) throws SQLException {
                 Statement statement = null; ResultSet result = null;
                 final String sql = "SELECT username FROM all_db_links WHERE db_link = '" + dbLink + "'";
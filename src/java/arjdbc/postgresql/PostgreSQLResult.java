@@ -64,6 +64,11 @@ public class PostgreSQLResult extends JdbcResult {
         return new PostgreSQLResult(context, clazz, connection, resultSet);
     }
 
+    static PostgreSQLResult newResult(ThreadContext context,  RubyClass clazz, PostgreSQLRubyJdbcConnection connection,
+                                      ResultSet resultSet, RubyString[] columnNames, int[] columnTypes) throws SQLException {
+        return new PostgreSQLResult(context, clazz, connection, resultSet, columnNames, columnTypes);
+    }
+
     /********* End JRuby compat methods ***********/
 
     private PostgreSQLResult(ThreadContext context, RubyClass clazz, RubyJdbcConnection connection,
@@ -73,6 +78,13 @@ public class PostgreSQLResult extends JdbcResult {
         resultSetMetaData = resultSet.getMetaData();
     }
 
+    private PostgreSQLResult(ThreadContext context, RubyClass clazz, RubyJdbcConnection connection,
+                             ResultSet resultSet, RubyString[] columnNames, int[] columnTypes) throws SQLException {
+        super(context, clazz, connection, resultSet, columnNames, columnTypes);
+
+        resultSetMetaData = resultSet.getMetaData();
+    }
+
     /**
      * Generates a type map to be given to the AR::Result object
      * @param context current thread context
@@ -157,7 +169,7 @@ public class PostgreSQLResult extends JdbcResult {
      */
     @PG @JRubyMethod(name = {"length", "ntuples", "num_tuples"})
     public IRubyObject length(final ThreadContext context) {
-        return values.length(context);
+        return context.runtime.newFixnum(getRowCount());
     }
 
     /**
@@ -171,6 +183,7 @@ public class PostgreSQLResult extends JdbcResult {
     @Override @SuppressWarnings("unchecked")
     public IRubyObject toARResult(final ThreadContext context) throws SQLException {
         RubyClass BinaryDataClass = null;
+        RubyArray values = null;
         int rowCount = 0;
 
         // This is destructive, but since this is typically the final
@@ -181,6 +194,7 @@ public class PostgreSQLResult extends JdbcResult {
                 // so AR knows it has already been unescaped
                 if (BinaryDataClass == null) {
                     BinaryDataClass = getBinaryDataClass(context);
+                    values = getValues(context);
                     rowCount = values.getLength();
                 }
                 for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
@@ -202,8 +216,8 @@ public class PostgreSQLResult extends JdbcResult {
      * @return IRubyObject RubyArray of RubyArray of values
      */
     @PG @JRubyMethod
-    public IRubyObject values() {
-        return values;
+    public IRubyObject values(ThreadContext context) {
+        return getValues(context);
     }
 
     /**
@@ -213,7 +227,7 @@ public class PostgreSQLResult extends JdbcResult {
      */
     @JRubyMethod(name = "empty?")
     public IRubyObject isEmpty(ThreadContext context) {
-        return context.runtime.newBoolean(values.isEmpty());
+        return context.runtime.newBoolean(getRowCount() == 0);
     }
 
     @PG @JRubyMethod
@@ -230,24 +244,24 @@ public class PostgreSQLResult extends JdbcResult {
 
     @PG @JRubyMethod
     public IRubyObject getvalue(ThreadContext context, IRubyObject rowArg, IRubyObject columnArg) {
-        int rows = values.size();
+        int rows = getRowCount();
         int row = toInt(context, rowArg);
         int column = toInt(context, columnArg);
 
         if (row < 0 || row >= rows) throw argumentError(context, "invalid tuple number " + row);
         if (column < 0 || column >= getColumnNames().length) throw argumentError(context, "invalid field number " + row);
 
-        return ((RubyArray) values.eltInternal(row)).eltInternal(column);
+        return getValue(context, row, column);
     }
 
     @PG @JRubyMethod(name = "[]")
     public IRubyObject aref(ThreadContext context, IRubyObject rowArg) {
         int row = toInt(context, rowArg);
-        int rows = values.size();
+        int rows = getRowCount();
 
         if (row < 0 || row >= rows) throw argumentError(context, "Index " + row + " is out of range");
 
-        RubyArray rowValues = (RubyArray) values.eltOk(row);
+        RubyArray rowValues = (RubyArray) getValues(context).eltOk(row);
         RubyHash resultHash = RubyHash.newSmallHash(context.runtime);
         RubyArray fields = fields(context);
         int length = rowValues.getLength();
@@ -264,6 +278,6 @@ public class PostgreSQLResult extends JdbcResult {
     // how jdbc can do this).
     @PG @JRubyMethod(name = {"cmdtuples", "cmd_tuples"})
     public IRubyObject cmdtuples(ThreadContext context) {
-        return values.isEmpty() ? context.runtime.newFixnum(0) : aref(context, context.runtime.newFixnum(0));
+        return getRowCount() == 0 ? context.runtime.newFixnum(0) : aref(context, context.runtime.newFixnum(0));
     }
 }
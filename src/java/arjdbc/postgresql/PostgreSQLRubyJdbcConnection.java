@@ -27,6 +27,7 @@
 package arjdbc.postgresql;
 
 import arjdbc.jdbc.Callable;
+import arjdbc.jdbc.ColumnDecoder;
 import arjdbc.jdbc.DriverWrapper;
 import arjdbc.util.DateTimeUtils;
 import arjdbc.util.PG;
@@ -52,6 +53,8 @@ import org.jruby.javasupport.JavaUtil;
 import org.jruby.runtime.ObjectAllocator;
 import org.jruby.runtime.ThreadContext;
 import org.jruby.runtime.builtin.IRubyObject;
+import org.jruby.runtime.callsite.CachingCallSite;
+import org.jruby.runtime.callsite.FunctionalCachingCallSite;
 import org.jruby.util.ByteList;
 
 import org.jruby.util.TypeConverter;
@@ -172,7 +175,7 @@ public class PostgreSQLRubyJdbcConnection extends arjdbc.jdbc.RubyJdbcConnection
     protected final IRubyObject beginTransaction(final ThreadContext context, final Connection connection,
         final IRubyObject isolation) throws SQLException {
         // NOTE: only reversed order - just to ~ match how Rails does it :
-        /* if ( connection.getAutoCommit() ) */ connection.setAutoCommit(false);
+        getSessionState().setAutoCommit(connection, false);
         if ( isolation != null ) setTransactionIsolation(context, connection, isolation);
         return context.nil;
     }
@@ -209,7 +212,7 @@ public class PostgreSQLRubyJdbcConnection extends arjdbc.jdbc.RubyJdbcConnection
 
     @JRubyMethod(name = "database_product")
     public IRubyObject database_product(final ThreadContext context) {
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final DatabaseMetaData metaData = connection.getMetaData();
             return RubyString.newString(context.runtime, metaData.getDatabaseProductName() + ' ' + metaData.getDatabaseProductVersion());
         });
@@ -281,6 +284,18 @@ public class PostgreSQLRubyJdbcConnection extends arjdbc.jdbc.RubyJdbcConnection
         return mapExecuteResult(context, connection, resultSet).toARResult(context);
     }
 
+    @Override
+    protected IRubyObject mapQueryResult(final ThreadContext context, final Connection connection,
+                                         final ResultSet resultSet, final ColumnData[] columns) throws SQLException {
+        final RubyString[] columnNames = new RubyString[columns.length];
+        final int[] columnTypes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnNames[i] = columns[i].getName(context);
+            columnTypes[i] = columns[i].type;
+        }
+        return PostgreSQLResult.newResult(context, resultClass, this, resultSet, columnNames, columnTypes).toARResult(context);
+    }
+
     @Override
     protected void setArrayParameter(final ThreadContext context,
                                      final Connection connection, final PreparedStatement statement,
@@ -570,19 +585,31 @@ public class PostgreSQLRubyJdbcConnection extends arjdbc.jdbc.RubyJdbcConnection
         return interval;
     }
 
-    protected IRubyObject jdbcToRuby(ThreadContext context, Ruby runtime, int column, int type, ResultSet resultSet) throws SQLException {
-        return typeMap != null ?
-                convertWithTypeMap(context, runtime, column, type, resultSet) :
-                super.jdbcToRuby(context, runtime, column, type, resultSet);
+    @Override // type map decoders (by type name) are looked up once per column
+    protected ColumnDecoder newColumnDecoder(final ThreadContext context, final ResultSetMetaData metaData,
+        final int column, final int type) throws SQLException {
+        final RubyHash typeMap = this.typeMap;
+        if (typeMap != null && metaData != null) {
+            final IRubyObject decoder = typeMap.op_aref(context, STRING_CACHE.get(context, metaData.getColumnTypeName(column)));
+            if (!decoder.isNil()) return new TypeMapDecoder(decoder);
+        }
+        return super.newColumnDecoder(context, metaData, column, type);
     }
 
-    private IRubyObject convertWithTypeMap(ThreadContext context, Ruby runtime, int column, int type, ResultSet resultSet) throws SQLException {
-        ResultSetMetaData metaData = resultSet.getMetaData();
-        IRubyObject decoder = typeMap.op_aref(context, STRING_CACHE.get(context, metaData.getColumnTypeName(column)));
+    private static final class TypeMapDecoder implements ColumnDecoder {
+
+        private final IRubyObject decoder;
+        private final CachingCallSite decode = new FunctionalCachingCallSite("decode");
 
-        if (decoder.isNil()) return super.jdbcToRuby(context, runtime, column, type, resultSet);
+        TypeMapDecoder(final IRubyObject decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public IRubyObject decode(final ThreadContext context, final ResultSet resultSet, final int column) throws SQLException {
+            return decode.call(context, decoder, decoder, StringHelper.newDefaultInternalString(context.runtime, resultSet.getString(column)));
+        }
 
-        return decoder.callMethod(context, "decode", StringHelper.newDefaultInternalString(runtime, resultSet.getString(column)));
     }
 
     // The tests won't start if this returns PGpoint[]
@@ -879,20 +906,13 @@ public class PostgreSQLRubyJdbcConnection extends arjdbc.jdbc.RubyJdbcConnection
     }
 
     /**
-     * Converts a string column into a Ruby string by pulling the raw bytes from the column and
-     * turning them into a string using the default encoding
-     * @param context current thread context
-     * @param runtime the Ruby runtime
-     * @param resultSet the jdbc result set to pull the value from
-     * @param index the index of the column to convert
-     * @return RubyNil if NULL or RubyString if there is a value
-     * @throws SQLException if it failes to retrieve the value from the result set
+     * String columns are read as raw bytes, pgjdbc returns text (non bytea) values in the
+     * (UTF-8) client encoding from <code>getBytes</code>.
+     * @return true
      */
     @Override
-    protected IRubyObject stringToRuby(ThreadContext context, Ruby runtime, ResultSet resultSet, int index) throws SQLException {
-        final byte[] value = resultSet.getBytes(index);
-
-        return value == null ? context.nil : StringHelper.newDefaultInternalString(context.runtime, value);
+    protected boolean supportsStringBytes() {
+        return true;
     }
 
     /**
@@ -56,9 +56,11 @@ import org.jruby.runtime.builtin.IRubyObject;
 import org.jruby.util.SafePropertyAccessor;
 
 import arjdbc.jdbc.Callable;
+import arjdbc.jdbc.ColumnDecoder;
+import arjdbc.jdbc.ColumnDecoders;
 import arjdbc.jdbc.RubyJdbcConnection;
+import arjdbc.jdbc.StatementTimings;
 
-import static arjdbc.util.StringHelper.newDefaultInternalString;
 import static arjdbc.util.StringHelper.newString;
 import static org.jruby.api.Access.getModule;
 import static org.jruby.api.Convert.asFixnum;
@@ -108,12 +110,12 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
         if (encoding != null) return encoding;
 
         // FIXME: How many single result queries do we have in Java?
-        return withConnection(context, connection -> {
+        return withConnection(context, true, connection -> {
             String query = "PRAGMA encoding";
             Statement statement = null;
             ResultSet resultSet = null;
             try {
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
                 if (statement.execute(query)) {
                     // Enebo: I do not think we need to worry about failure here?
                     resultSet = statement.getResultSet();
@@ -188,7 +190,7 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
         final String tableName = table;
         final String schemaName = schema;
         // return super.indexes(context, tableName, name, schemaName);
-        return withConnection(context, (Callable<IRubyObject>) connection -> {
+        return withConnection(context, true, (Callable<IRubyObject>) connection -> {
             final RubyClass IndexDefinition = getIndexDefinition(context);
 
             final TableName table1 = extractTableName(connection, null, schemaName, tableName);
@@ -279,32 +281,58 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
     }
 
     @Override
-    protected IRubyObject jdbcToRuby(final ThreadContext context,
-        final Ruby runtime, final int column, int type, final ResultSet resultSet)
-        throws SQLException {
-        // This is rather gross, and only needed because the resultset metadata for SQLite tries to be overly
-        // clever, and returns a type for the column of the "current" row, so an integer value stored in a
-        // decimal column is returned as Types.INTEGER.  Therefore, if the first row of a resultset was an
-        // integer value, all rows of that result set would get truncated.
-        if ( resultSet instanceof ResultSetMetaData ) {
-            type = ((ResultSetMetaData) resultSet).getColumnType(column);
-        }
+    protected void registerColumnDecoders(final ColumnDecoders decoders) {
+        super.registerColumnDecoders(decoders);
         // since JDBC 3.8 there seems to be more cleverness built-in that
         // causes (<= 3.8.7) to get things wrong ... reports DATE SQL type
         // for "datetime" columns :
-        if ( type == Types.DATE ) {
-            // return timestampToRuby(context, runtime, resultSet, column);
-            return stringToRuby(context, runtime, resultSet, column);
+        decoders.register(decoders.get(Types.VARCHAR), Types.DATE);
+    }
+
+    @Override // column types are (per value) dynamic
+    protected ColumnDecoder newColumnDecoder(final ThreadContext context, final ResultSetMetaData metaData,
+        final int column, final int type) throws SQLException {
+        return new DynamicTypeDecoder(getColumnDecoders(), type);
+    }
+
+    /**
+     * This is rather gross, and only needed because the resultset metadata for SQLite tries to be overly
+     * clever, and returns a type for the column of the "current" row, so an integer value stored in a
+     * decimal column is returned as Types.INTEGER.  Therefore, if the first row of a resultset was an
+     * integer value, all rows of that result set would get truncated.
+     * <p>
+     * The value's type is checked for every row, while the decoder is only looked up again when the
+     * type differs from the previous row's.
+     * </p>
+     */
+    private static final class DynamicTypeDecoder implements ColumnDecoder {
+
+        private final ColumnDecoders decoders;
+        private int type;
+        private ColumnDecoder decoder;
+
+        DynamicTypeDecoder(final ColumnDecoders decoders, final int type) {
+            this.decoders = decoders;
+            this.type = type;
+            this.decoder = decoders.get(type);
+        }
+
+        @Override
+        public IRubyObject decode(final ThreadContext context, final ResultSet resultSet, final int column) throws SQLException {
+            if ( resultSet instanceof ResultSetMetaData ) {
+                final int type = ((ResultSetMetaData) resultSet).getColumnType(column);
+                if ( type != this.type ) {
+                    this.decoder = decoders.get(type); this.type = type;
+                }
+            }
+            return decoder.decode(context, resultSet, column);
         }
-        return super.jdbcToRuby(context, runtime, column, type, resultSet);
+
     }
 
-    @Override
-    protected IRubyObject stringToRuby(final ThreadContext context,
-        final Ruby runtime, final ResultSet resultSet, final int column) throws SQLException {
-        final byte[] value = resultSet.getBytes(column);
-        if ( value == null ) return context.nil; // resultSet.wasNull()
-        return newDefaultInternalString(runtime, value);
+    @Override // TEXT values are (UTF-8) bytes
+    protected boolean supportsStringBytes() {
+        return true;
     }
 
     @Override
@@ -377,7 +405,7 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
 
     @Override
     protected boolean resetSavepoints(final ThreadContext context, final Connection connection) throws SQLException {
-        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        getSessionState().setTransactionIsolation(connection, Connection.TRANSACTION_SERIALIZABLE);
         return super.resetSavepoints(context, connection);
     }
 
@@ -394,7 +422,7 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
         Statement statement = null;
         try {
             final Connection connection = getConnectionInternal(true);
-            connection.setAutoCommit(false);
+            getSessionState().setAutoCommit(connection, false);
             // NOTE: JDBC driver does not support setSavepoint(String) :
             ( statement = connection.createStatement() ).execute("SAVEPOINT " + name.toString());
 
@@ -468,7 +496,7 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
     @JRubyMethod(name = "readonly?")
     public IRubyObject readonly_p(final ThreadContext context) throws SQLException {
         final Connection connection = getConnection(true);
-        return context.runtime.newBoolean(connection.isReadOnly());
+        return context.runtime.newBoolean(getSessionState().isReadOnly(connection));
     }
 
     // note: sqlite3 cext uses this same method but we do not combine all our statements
@@ -480,15 +508,18 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
     @JRubyMethod(name = "execute", required = 1)
     public IRubyObject execute(final ThreadContext context, final IRubyObject sql) {
         final String query = sqlString(sql);
-        return withConnection(context, connection -> {
+        return withConnection(context, StatementTimings.Call.QUERY, sql, isReadQuery(sql), connection -> {
             Statement statement = null;
             try {
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
 
                 // SQLite3 can support multiple statements in one query
                 // Process all results but return the last one for Rails compatibility
+                final long start = executeStart();
                 boolean hasResultSet = doExecute(statement, query);
+                executeEnd(start);
                 int updateCount = statement.getUpdateCount();
+                rowsAffected(updateCount);
                 IRubyObject result = null;
 
                 do {
@@ -528,7 +559,7 @@ public class SQLite3RubyJdbcConnection extends RubyJdbcConnection {
             Statement statement = null;
 
             try {
-                statement = createStatement(context, connection);
+                statement = startStatement(createStatement(context, connection));
 
                 int length = statements.getLength();
                 for (int i = 0; i < length; i++) {
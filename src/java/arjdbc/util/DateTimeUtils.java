@@ -26,6 +26,9 @@ package arjdbc.util;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.TimeZone;
 
 import org.joda.time.Chronology;
@@ -248,6 +251,23 @@ public abstract class DateTimeUtils {
         return RubyTime.newTime(context.runtime, dateTime, nanos);
     }
 
+    /**
+     * Same as {@link #newTime(ThreadContext, Timestamp, DateTimeZone)} for a (JDBC 4.2) local date-time,
+     * the time is computed from the epoch seconds (no field based calendar computations).
+     * @param context current thread context
+     * @param value the (wall clock) date-time as read from the database
+     * @param zone the zone to interpret the value in
+     * @param zoneId same zone as <code>zone</code>
+     * @return a new time
+     */
+    public static RubyTime newTime(final ThreadContext context, final LocalDateTime value,
+        final DateTimeZone zone, final ZoneId zoneId) {
+        final ZoneOffset offset = zoneId instanceof ZoneOffset ? (ZoneOffset) zoneId : zoneId.getRules().getOffset(value);
+        final int nanos = value.getNano(); // max 999-999-999
+        final long millis = value.toEpochSecond(offset) * 1000 + nanos / 1000000;
+        return RubyTime.newTime(context.runtime, new DateTime(millis, zone), nanos % 1000000);
+    }
+
     @SuppressWarnings("deprecation")
     public static RubyTime newDateAsTime(final ThreadContext context, final Date date, final DateTimeZone zone) {
 
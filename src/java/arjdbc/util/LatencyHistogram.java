@@ -0,0 +1,92 @@
+package arjdbc.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A (lock-free) latency histogram with log-linear buckets (HdrHistogram-style),
+ * every power of 2 (nanoseconds) is split into 8 linear sub-buckets - thus
+ * recorded values (and percentiles) are within 12.5% of the actual value.
+ * <p>
+ * Recording is a couple of atomic increments, meant to be cheap enough to be
+ * done for every statement. Reading (a percentile) while recording is fine but
+ * the result is not a consistent snapshot.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    /**
+     * @param nanos the (elapsed) time to record
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketIndex(nanos));
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) return (int) value; // exact for the smallest values
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        final int shift = magnitude - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // the (inclusive) highest value of a bucket
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKETS) return index;
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lower = ((long) (SUB_BUCKETS | (index & (SUB_BUCKETS - 1)))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public long getCount() { return count.sum(); }
+
+    /**
+     * @return total of recorded values (nanoseconds)
+     */
+    public long getSum() { return sum.sum(); }
+
+    public long getMax() { return max.get(); }
+
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * @param percentile (0.0 - 100.0)
+     * @return the value (nanoseconds) the given percentile of recorded values are at or below
+     */
+    public long getPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        if (total == 0) return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(bucketUpperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.reset(); sum.reset(); max.reset();
+    }
+
+}
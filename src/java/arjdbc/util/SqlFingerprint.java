@@ -0,0 +1,259 @@
+package arjdbc.util;
+
+import org.jruby.util.ByteList;
+
+/**
+ * Normalizes SQL so that statements only differing in literal values (or formatting)
+ * are considered the same, similar to what <i>pg_stat_statements</i> does :
+ * <ul>
+ * <li>string and numeric literals (and bind markers) become <code>?</code></li>
+ * <li>lists of those e.g. <code>IN (1, 2, 3)</code> collapse into <code>(...)</code></li>
+ * <li>comments are dropped, whitespace is collapsed and (unquoted) ASCII is down-cased</li>
+ * </ul>
+ * The fingerprint is a (64-bit FNV-1a) hash of the normalized SQL, computed in a single pass
+ * over the (Ruby string) bytes without allocating.
+ * <p>
+ * String literals follow standard SQL (a quote is escaped by doubling it), backslash escapes
+ * e.g. <code>'it\'s'</code> are only recognized for dialects using those (MySQL).
+ * </p>
+ *
+ * @see #fingerprint(ByteList)
+ * @see #normalize(ByteList)
+ */
+public abstract class SqlFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final byte[] LIST = { '(', '.', '.', '.', ')' };
+
+    /**
+     * @param sql the SQL (bytes)
+     * @return the fingerprint of the normalized SQL
+     */
+    public static long fingerprint(final ByteList sql) {
+        return fingerprint(sql, false);
+    }
+
+    /**
+     * @param sql the SQL (bytes)
+     * @param backslashEscapes whether a backslash escapes (the next character) in string literals
+     * @return the fingerprint of the normalized SQL
+     */
+    public static long fingerprint(final ByteList sql, final boolean backslashEscapes) {
+        final Hash hash = new Hash(); // does not escape
+        normalize(sql, backslashEscapes, hash);
+        return hash.hash;
+    }
+
+    /**
+     * @param sql the SQL (bytes)
+     * @return the normalized SQL the fingerprint is computed from
+     */
+    public static ByteList normalize(final ByteList sql) {
+        return normalize(sql, false);
+    }
+
+    /**
+     * @param sql the SQL (bytes)
+     * @param backslashEscapes whether a backslash escapes (the next character) in string literals
+     * @return the normalized SQL the fingerprint is computed from
+     */
+    public static ByteList normalize(final ByteList sql, final boolean backslashEscapes) {
+        final ByteList out = new ByteList(Math.min(sql.getRealSize(), 1024));
+        normalize(sql, backslashEscapes, (Sink) out::append);
+        return out;
+    }
+
+    private interface Sink {
+
+        void append(int b);
+
+    }
+
+    private static final class Hash implements Sink {
+
+        long hash = FNV_OFFSET;
+
+        @Override
+        public void append(final int b) {
+            hash = ( hash ^ ( b & 0xFF ) ) * FNV_PRIME;
+        }
+
+    }
+
+    private static void normalize(final ByteList sql, final boolean backslashEscapes, final Sink out) {
+        final byte[] bytes = sql.unsafeBytes();
+        final int end = sql.getBegin() + sql.getRealSize();
+
+        boolean space = false; // whitespace (or a comment) preceding the current token
+        int last = -1; // last byte written (-1 at start)
+        int p = sql.getBegin();
+        while ( p < end ) {
+            final int b = bytes[p] & 0xFF;
+
+            if ( isSpace(b) ) { space = true; p++; continue; }
+            int next = skipComment(bytes, p, end);
+            if ( next != p ) { space = true; p = next; continue; }
+
+            if ( b == '(' && ( next = literalListEnd(bytes, p, end, backslashEscapes) ) != -1 ) {
+                if ( separate(last, '(', space) ) out.append(' ');
+                for ( int i = 0; i < LIST.length; i++ ) out.append(LIST[i]);
+                last = ')'; p = next; space = false; continue;
+            }
+            if ( ( next = literalEnd(bytes, p, end, space ? ' ' : last, last, backslashEscapes) ) != -1 ) {
+                if ( separate(last, '?', space) ) out.append(' ');
+                out.append('?');
+                last = '?'; p = next; space = false; continue;
+            }
+
+            if ( separate(last, b, space) ) out.append(' ');
+            if ( b == '"' || b == '`' || b == '[' ) { // quoted identifier - as is
+                next = quotedEnd(bytes, p, end, b == '[' ? ']' : b, false);
+                for ( int i = p; i < next; i++ ) out.append(bytes[i]);
+                last = bytes[next - 1] & 0xFF; p = next; space = false; continue;
+            }
+            last = ( b >= 'A' && b <= 'Z' ) ? b + ('a' - 'A') : b;
+            out.append(last); p++; space = false;
+        }
+    }
+
+    /**
+     * Whether to separate tokens with a space - normalized so that formatting differences
+     * e.g. <code>id=1</code> and <code>id = 1</code> do not matter (while staying readable).
+     * @param last last (written) byte
+     * @param b first byte of the token to be written
+     * @param space whether there's been whitespace in between
+     */
+    private static boolean separate(final int last, final int b, final boolean space) {
+        if ( last == -1 ) return false;
+        if ( b == ')' || b == ',' || b == '.' || b == ':' || b == ';' ) return false;
+        if ( last == '(' || last == '.' || last == ':' ) return false;
+        if ( last == ',' ) return true;
+        final boolean lastOperator = isOperator(last), operator = isOperator(b);
+        if ( lastOperator && operator ) return space; // e.g. <=
+        if ( lastOperator || operator ) return true;
+        return space; // words (or parentheses)
+    }
+
+    private static boolean isOperator(final int b) {
+        switch (b) {
+            case '=': case '<': case '>': case '!': case '+': case '-': case '*': case '/':
+            case '%': case '|': case '&': case '^': case '~':
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isSpace(final int b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f';
+    }
+
+    private static boolean isIdentifier(final int b) {
+        return ( b >= 'a' && b <= 'z' ) || ( b >= 'A' && b <= 'Z' ) || ( b >= '0' && b <= '9' ) ||
+                b == '_' || b == '$' || b >= 0x80;
+    }
+
+    private static boolean isDigit(final int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // @return the index after a (-- or /* */) comment starting at p, p if none
+    private static int skipComment(final byte[] bytes, final int p, final int end) {
+        if ( p + 1 >= end ) return p;
+        if ( bytes[p] == '-' && bytes[p + 1] == '-' ) {
+            int i = p + 2;
+            while ( i < end && bytes[i] != '\n' ) i++;
+            return i;
+        }
+        if ( bytes[p] == '/' && bytes[p + 1] == '*' ) {
+            int i = p + 2;
+            while ( i + 1 < end && ! ( bytes[i] == '*' && bytes[i + 1] == '/' ) ) i++;
+            return Math.min(i + 2, end);
+        }
+        return p;
+    }
+
+    private static int quotedEnd(final byte[] bytes, final int p, final int end, final int quote,
+        final boolean backslashEscapes) {
+        for ( int i = p + 1; i < end; i++ ) {
+            if ( backslashEscapes && bytes[i] == '\\' ) { i++; continue; } // MySQL-style escape
+            if ( bytes[i] == quote ) {
+                if ( i + 1 < end && bytes[i + 1] == quote ) { i++; continue; } // '' (escaped quote)
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return the index after a literal (string, number or bind marker) starting at p, -1 if none
+     */
+    private static int literalEnd(final byte[] bytes, final int p, final int end, final int adjacent, final int last,
+        final boolean backslashEscapes) {
+        final int b = bytes[p] & 0xFF;
+        switch (b) {
+            case '\'':
+                return quotedEnd(bytes, p, end, '\'', backslashEscapes);
+            case '?':
+                return p + 1;
+            case '$': // PostgreSQL $1 (not a $$ quoted string)
+                if ( p + 1 < end && isDigit(bytes[p + 1]) && ! isIdentifier(adjacent) ) {
+                    int i = p + 1;
+                    while ( i < end && isDigit(bytes[i]) ) i++;
+                    return i;
+                }
+                return -1;
+        }
+        if ( isIdentifier(adjacent) ) return -1; // e.g. t1 or x$1
+        if ( b == '-' ) { // a negative number e.g. = -1 or (-1, 2) but not a - 1
+            if ( last != -1 && ! isOperator(last) && last != '(' && last != ',' ) return -1;
+            return p + 1 < end && isDigit(bytes[p + 1]) ? numberEnd(bytes, p + 1, end) : -1;
+        }
+        if ( isDigit(b) || ( b == '.' && p + 1 < end && isDigit(bytes[p + 1]) ) ) {
+            return numberEnd(bytes, p, end);
+        }
+        return -1;
+    }
+
+    private static int numberEnd(final byte[] bytes, final int p, final int end) {
+        int i = p;
+        if ( bytes[i] == '0' && i + 1 < end && ( bytes[i + 1] == 'x' || bytes[i + 1] == 'X' ) ) { // hex
+            i += 2;
+            while ( i < end && ( isDigit(bytes[i]) || ( ( bytes[i] | 0x20 ) >= 'a' && ( bytes[i] | 0x20 ) <= 'f' ) ) ) i++;
+        }
+        else {
+            while ( i < end && ( isDigit(bytes[i]) || bytes[i] == '.' ) ) i++;
+            if ( i < end && ( bytes[i] == 'e' || bytes[i] == 'E' ) ) { // 1e-3
+                int e = i + 1;
+                if ( e < end && ( bytes[e] == '+' || bytes[e] == '-' ) ) e++;
+                if ( e < end && isDigit(bytes[e]) ) {
+                    i = e; while ( i < end && isDigit(bytes[i]) ) i++;
+                }
+            }
+        }
+        return i < end && isIdentifier(bytes[i] & 0xFF) ? -1 : i;
+    }
+
+    /**
+     * @return the index after a parenthesized list of literals starting at p (the '('), -1 if not such a list
+     */
+    private static int literalListEnd(final byte[] bytes, final int p, final int end, final boolean backslashEscapes) {
+        int i = p + 1; int literals = 0; boolean comma = true; // expecting a literal
+        while ( i < end ) {
+            final int b = bytes[i] & 0xFF;
+            if ( isSpace(b) ) { i++; continue; }
+            if ( b == ')' ) return literals > 0 && ! comma ? i + 1 : -1;
+            if ( b == ',' ) {
+                if ( comma ) return -1;
+                comma = true; i++; continue;
+            }
+            if ( ! comma ) return -1;
+            final int next = literalEnd(bytes, i, end, ',', ',', backslashEscapes);
+            if ( next == -1 ) return -1;
+            literals++; comma = false; i = next;
+        }
+        return -1;
+    }
+
+}
@@ -23,41 +23,124 @@
  */
 package arjdbc.util;
 
-import java.lang.ref.SoftReference;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.jruby.Ruby;
+import org.jcodings.specific.UTF8Encoding;
 import org.jruby.RubyString;
 import org.jruby.runtime.ThreadContext;
 import org.jruby.util.ByteList;
+import org.jruby.util.SafePropertyAccessor;
 
 /**
- * Cache of _unicode_ strings.
+ * Cache of _unicode_ (frozen) strings, meant for column/table names.
+ * <p>
+ * Bounded (set using the <code>arjdbc.string_cache.size</code> system property),
+ * entries are split into stripes each evicting its least recently used strings.
+ * NOTE: only the (unicode) bytes are cached, strings belong to a Ruby runtime and
+ * are created per call - thus the cache does not hold on to (any) runtime.
+ * </p>
  *
  * @author kares
  */
 public final class StringCache {
 
-    final ConcurrentHashMap<String, SoftReference<ByteList>> cache = new ConcurrentHashMap<>(64);
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final int STRIPES = 16; // power of 2
+
+    private final Stripe[] stripes;
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StringCache() {
+        this(defaultMaxSize());
+    }
+
+    public StringCache(final int maxSize) {
+        this.maxSize = maxSize;
+        final int stripeSize = Math.max(1, (maxSize + STRIPES - 1) / STRIPES);
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(stripeSize, evictions);
+    }
+
+    private static int defaultMaxSize() {
+        final String size = SafePropertyAccessor.getProperty("arjdbc.string_cache.size");
+        if (size == null) return DEFAULT_MAX_SIZE;
+        try {
+            final int maxSize = Integer.parseInt(size.trim());
+            return maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+        }
+        catch (NumberFormatException e) {
+            return DEFAULT_MAX_SIZE;
+        }
+    }
 
     public RubyString get(final ThreadContext context, final String key) {
-        final ByteList bytes;
-        final SoftReference<ByteList> ref = cache.get(key);
-        if ( ref == null || (bytes = ref.get()) == null ) return store(context, key);
-        return (RubyString) RubyString.newUnicodeString(context.runtime, bytes).freeze(context);
-    }
-
-    private RubyString store(final ThreadContext context, final String key) {
-        final Ruby runtime = context.runtime;
-        final RubyString str = RubyString.newUnicodeString(runtime, key);
-        cache.putIfAbsent(key, new SoftReference<>(str.getByteList()));
-        // not clearing up orphans - but since its to be used for column/table names ...
-        // should be fine - DB drivers tend do also cache some meta-data information
+        final Stripe stripe = stripeFor(key);
+        ByteList bytes;
+        synchronized (stripe) { bytes = stripe.get(key); }
+        if (bytes != null) {
+            hits.increment();
+            // NOTE: bytes are shared (not copied) - safe as the (frozen) strings never modify them
+            return (RubyString) RubyString.newStringShared(context.runtime, bytes, UTF8Encoding.INSTANCE).freeze(context);
+        }
+        misses.increment();
+        final RubyString str = RubyString.newUnicodeString(context.runtime, key);
+        synchronized (stripe) { stripe.put(key, str.getByteList()); }
         return (RubyString) str.freeze(context);
     }
 
+    private Stripe stripeFor(final String key) {
+        final int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
     public void clear() {
-        cache.clear();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) { stripe.clear(); }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) { size += stripe.size(); }
+        }
+        return size;
+    }
+
+    public int getMaxSize() { return maxSize; }
+
+    public long getHits() { return hits.sum(); }
+
+    public long getMisses() { return misses.sum(); }
+
+    public long getEvictions() { return evictions.sum(); }
+
+    private static final class Stripe extends LinkedHashMap<String, ByteList> {
+
+        private final int maxSize;
+        private final LongAdder evictions;
+
+        Stripe(final int maxSize, final LongAdder evictions) {
+            super(16, 0.75f, true); // access-order
+            this.maxSize = maxSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, ByteList> eldest) {
+            if (size() > maxSize) {
+                evictions.increment(); return true;
+            }
+            return false;
+        }
+
     }
 
 }
@@ -0,0 +1,103 @@
+package arjdbc.util;
+
+import java.util.Arrays;
+
+import org.jcodings.Encoding;
+import org.jruby.Ruby;
+import org.jruby.RubyString;
+import org.jruby.runtime.ThreadContext;
+import org.jruby.util.ByteList;
+
+/**
+ * Re-uses (frozen) strings for repeated values of a (low cardinality) column,
+ * e.g. status or country code columns, instead of a new string per value.
+ * <p>
+ * Similar to {@link StringCache} but per column, values are kept in a fixed size
+ * (direct mapped) table where a colliding value replaces (evicts) the previous.
+ * Long values are never de-duplicated.
+ * </p>
+ * NOTE: safe to use from multiple threads (e.g. async queries) - a slot is replaced
+ * as a whole, although the hit/miss statistics might then be (slightly) off.
+ */
+public final class StringDedup {
+
+    public static final int DEFAULT_SIZE = 256; // power of 2
+    public static final int MAX_LENGTH = 64; // (bytes or chars) longer values are not de-duplicated
+
+    private static final class Entry {
+
+        final Object key; // byte[] or String
+        final RubyString value;
+
+        Entry(final Object key, final RubyString value) {
+            this.key = key; this.value = value;
+        }
+
+    }
+
+    private final Entry[] entries;
+    private final int mask;
+
+    private long hits, misses;
+
+    public StringDedup() {
+        this(DEFAULT_SIZE);
+    }
+
+    public StringDedup(final int size) {
+        final int capacity = Integer.highestOneBit(Math.max(size, 2) * 2 - 1); // round to power of 2
+        this.entries = new Entry[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @param context current thread context
+     * @param bytes the (driver) value bytes
+     * @param encoding the encoding of the bytes
+     * @return a frozen string
+     */
+    public RubyString get(final ThreadContext context, final byte[] bytes, final Encoding encoding) {
+        if (bytes.length > MAX_LENGTH) return newString(context, new ByteList(bytes, encoding, false));
+
+        final int i = Arrays.hashCode(bytes) & mask;
+        final Entry entry = entries[i];
+        if (entry != null && entry.key instanceof byte[] && Arrays.equals((byte[]) entry.key, bytes)) {
+            if (entry.value.getEncoding() == encoding) {
+                hits++; return entry.value;
+            }
+        }
+        misses++;
+        final RubyString value = newString(context, new ByteList(bytes, encoding, false));
+        entries[i] = new Entry(bytes, value);
+        return value;
+    }
+
+    /**
+     * @param context current thread context
+     * @param str the value
+     * @return a frozen string
+     */
+    public RubyString get(final ThreadContext context, final String str) {
+        if (str.length() > MAX_LENGTH) return (RubyString) StringHelper.newDefaultInternalString(context.runtime, str).freeze(context);
+
+        final int i = str.hashCode() & mask;
+        final Entry entry = entries[i];
+        if (entry != null && str.equals(entry.key)) {
+            hits++; return entry.value;
+        }
+        misses++;
+        final RubyString value = (RubyString) StringHelper.newDefaultInternalString(context.runtime, str).freeze(context);
+        entries[i] = new Entry(str, value);
+        return value;
+    }
+
+    private static RubyString newString(final ThreadContext context, final ByteList bytes) {
+        final Ruby runtime = context.runtime;
+        return (RubyString) RubyString.newString(runtime, bytes).freeze(context);
+    }
+
+    public long getHits() { return hits; }
+
+    public long getMisses() { return misses; }
+
+}
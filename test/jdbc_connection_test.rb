@@ -213,6 +213,201 @@ class JdbcConnectionTest < Test::Unit::TestCase
     assert_equal connection, adapter.raw_connection
   end if defined? JRUBY_VERSION
 
+  test 'string cache stats' do
+    ActiveRecord::Base.connection.exec_query 'SELECT 42 AS answer'
+    stats = ActiveRecord::ConnectionAdapters::JdbcConnection.string_cache_stats
+    ActiveRecord::Base.connection.exec_query 'SELECT 42 AS answer'
+    assert_operator ActiveRecord::ConnectionAdapters::JdbcConnection.string_cache_stats[:hits], :>, stats[:hits]
+    assert_operator stats[:size], :<=, stats[:max_size]
+  end if defined? JRUBY_VERSION
+
+  test 'string cache keeps non-ascii column names intact' do
+    connection = ActiveRecord::Base.connection
+    sql = "SELECT 42 AS #{connection.quote_column_name('größe')}"
+    stats = ActiveRecord::ConnectionAdapters::JdbcConnection.string_cache_stats
+    2.times do
+      column = connection.exec_query(sql).columns.first
+      assert_equal 'größe', column
+      assert_equal Encoding::UTF_8, column.encoding
+    end
+    assert_operator ActiveRecord::ConnectionAdapters::JdbcConnection.string_cache_stats[:hits], :>, stats[:hits]
+  end if defined? JRUBY_VERSION
+
+  test 'jdbc_pool re-uses connections on reconnect!' do
+    ActiveRecord::Base.remove_connection
+    begin
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :jdbc_pool => true, :jdbc_pool_max_size => 2
+      connection = ActiveRecord::Base.connection.raw_connection
+      physical = connection.jdbc_connection(true)
+      connection.reconnect!
+      assert_equal physical, connection.jdbc_connection(true)
+
+      stats = connection.connection_pool_stats
+      assert_equal 2, stats[:max_size]
+      assert_operator stats[:borrows], :>=, 2
+      assert_operator stats[:total], :<=, 2
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
+  test 'jdbc_pool restores session state of returned connections' do
+    ActiveRecord::Base.remove_connection
+    begin
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :jdbc_pool => true, :jdbc_pool_max_size => 1
+      connection = ActiveRecord::Base.connection.raw_connection
+      physical = connection.jdbc_connection(true)
+      read_only = physical.isReadOnly
+      connection.jdbc_connection.setReadOnly(!read_only)
+      connection.reconnect!
+      assert_equal physical, connection.jdbc_connection(true)
+      assert_equal read_only, connection.jdbc_connection.isReadOnly
+
+      connection.disconnect!
+      assert_nil connection.connection_pool_stats # released
+      connection.reconnect!
+      assert_equal 1, connection.connection_pool_stats[:max_size]
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
+  test 'jdbc_pool validates connections returned after a failed statement' do
+    ActiveRecord::Base.remove_connection
+    begin
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :jdbc_pool => true, :connection_alive_window => 60
+      connection = ActiveRecord::Base.connection.raw_connection
+      validations = connection.connection_pool_stats[:validations]
+      assert_raise(ActiveRecord::StatementInvalid) { connection.execute 'SELECT * FROM a_missing_table' }
+      connection.reconnect!
+      assert_equal validations + 1, connection.connection_pool_stats[:validations]
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
+  test 'jdbc_pool does not re-use an unwrapped connection closed behind its back' do
+    ActiveRecord::Base.remove_connection
+    begin
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :jdbc_pool => true, :connection_alive_window => 60
+      connection = ActiveRecord::Base.connection.raw_connection
+      destroyed = connection.connection_pool_stats[:destroyed]
+      physical = connection.jdbc_connection(true)
+      physical.close
+      connection.reconnect!
+      assert_not_equal physical, connection.jdbc_connection(true)
+      assert_equal destroyed + 1, connection.connection_pool_stats[:destroyed]
+      assert connection.active?
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
+  test 'exec_query_async runs synchronously without a jdbc_pool' do
+    pending = ActiveRecord::Base.connection.exec_query_async 'SELECT 42 AS answer'
+    assert pending.done?
+    assert_equal [[42]], pending.value.rows
+  end if defined? JRUBY_VERSION
+
+  test 'exec_query_async borrows a set-up connection from the jdbc_pool' do
+    ActiveRecord::Base.remove_connection
+    begin
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :jdbc_pool => true, :jdbc_pool_max_size => 2
+      connection = ActiveRecord::Base.connection
+      other = ActiveRecord::Base.connection_pool.checkout
+      other.raw_connection.disconnect! # returns its (set-up) connection to the jdbc_pool
+      ActiveRecord::Base.connection_pool.checkin(other)
+      stats = connection.raw_connection.connection_pool_stats
+
+      pending = connection.exec_query_async 'SELECT 42 AS answer'
+      assert_equal [[42]], pending.value.rows
+      assert_equal stats[:borrows] + 1, connection.raw_connection.connection_pool_stats[:borrows]
+      assert_equal stats[:created], connection.raw_connection.connection_pool_stats[:created]
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
+  test 'jdbc_circuit_breaker reports a closed circuit when connected' do
+    ActiveRecord::Base.remove_connection
+    begin
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :jdbc_circuit_breaker => true, :jdbc_circuit_breaker_failures => 3
+      connection = ActiveRecord::Base.connection.raw_connection
+      connection.reconnect!
+
+      stats = connection.connection_circuit_breaker_stats
+      assert_equal :closed, stats[:state]
+      assert_equal 3, stats[:failure_threshold]
+      assert_equal 0, stats[:consecutive_failures]
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
+  class FlakyDriver
+
+    attr_accessor :down
+    attr_reader :connects
+
+    def initialize(factory); @factory = factory; @down = false; @connects = 0 end
+
+    def connection(url, user, pass)
+      @connects += 1
+      raise Java::JavaSql::SQLTransientConnectionException.new("#{url} is down", '08001') if down
+      @factory.newConnection
+    end
+
+  end
+
+  test 'jdbc_circuit_breaker opens after consecutive failures and a probe closes it' do
+    driver = FlakyDriver.new get_jdbc_connection_factory
+    ActiveRecord::Base.remove_connection
+    begin
+      # NOTE: breakers are shared per URL, a distinct one gets us a fresh (closed) breaker
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :url => "#{JDBC_CONFIG[:url]}#circuit_breaker",
+        :driver_instance => driver, :jdbc_circuit_breaker => true,
+        :jdbc_circuit_breaker_failures => 2, :jdbc_circuit_breaker_cooldown => 0.2
+      connection = ActiveRecord::Base.connection.raw_connection
+      assert_equal :closed, connection.connection_circuit_breaker_stats[:state]
+
+      driver.down = true
+      2.times { assert_raise(ActiveRecord::JDBCError) { connection.reconnect! } }
+      assert_equal :open, connection.connection_circuit_breaker_stats[:state]
+
+      connects = driver.connects
+      error = assert_raise(ActiveRecord::JDBCError) { connection.reconnect! }
+      assert_match /circuit breaker open/, error.message
+      assert_equal connects, driver.connects # failed fast (not connecting)
+      assert_equal 1, connection.connection_circuit_breaker_stats[:rejected]
+
+      sleep 0.3 # cool-down
+      driver.down = false
+      connection.reconnect! # probe
+      assert_equal :closed, connection.connection_circuit_breaker_stats[:state]
+      assert_equal connects + 1, driver.connects
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
+  test 'slow_query_threshold captures slow queries' do
+    ActiveRecord::Base.remove_connection
+    begin
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.merge :slow_query_threshold => 0.000001
+      connection = ActiveRecord::Base.connection.raw_connection
+      connection.clear_slow_queries
+      connection.execute_query 'SELECT 42 AS answer'
+
+      query = connection.slow_queries.first
+      assert query, 'expected a slow query capture'
+      assert_equal 'SELECT 42 AS answer', query[:sql]
+      assert_equal :query, query[:call]
+      assert query[:elapsed] > 0
+    ensure
+      ActiveRecord::Base.establish_connection JDBC_CONFIG.dup
+    end
+  end if defined? JRUBY_VERSION
+
   context "jdbc-connection" do
 
     def setup
@@ -333,6 +333,34 @@ module SimpleTestMethods
 
     end
 
+    def test_timestamp_with_usec_and_default_timezone_utc
+      with_timezone_config default: :utc do
+        time = Time.utc(2021, 3, 14, 1, 59, 26, 535_897)
+        record = DbType.create!(:sample_timestamp => time)
+
+        saved_time = DbType.find(record.id).sample_timestamp
+        assert_timestamp_equal time, saved_time
+        assert_equal 'UTC', saved_time.zone
+      end
+    end
+
+    def test_timestamp_with_usec_and_default_timezone_local
+      skip "with_system_tz not working in tomcat" if ActiveRecord::Base.connection.raw_connection.jndi?
+
+      with_system_tz 'Europe/Prague' do
+        Time.use_zone 'Europe/Prague' do
+          with_timezone_config default: :local do
+            time = Time.local(2021, 7, 5, 0, 30, 45, 123_456) # (summer time) a day earlier in UTC
+            record = DbType.create!(:sample_timestamp => time)
+
+            saved_time = DbType.find(record.id).sample_timestamp
+            assert_timestamp_equal time, saved_time
+            assert_equal time.utc_offset, saved_time.utc_offset
+          end
+        end
+      end
+    end
+
     #
 
     def test_preserving_time_objects_with_utc_time_conversion_to_default_timezone_local
@@ -927,6 +955,205 @@ module SimpleTestMethods
     assert_equal 'user12', result.rows[1][1]
   end
 
+  def test_columnar_results
+    DbType.delete_all
+    DbType.create! :sample_integer_no_limit => 1, :sample_float => 1.5, :sample_string => 'one', :sample_text => nil
+    DbType.create! :sample_integer_no_limit => nil, :sample_float => nil, :sample_string => nil, :sample_text => 'two'
+    DbType.create! :sample_integer_no_limit => -3, :sample_float => 0.25, :sample_string => '', :sample_text => 'three'
+
+    sql = 'SELECT id, sample_integer_no_limit, sample_float, sample_string, sample_text FROM db_types ORDER BY id'
+    expected = connection.exec_query sql
+
+    with_connection_config(:columnar_results => true) do |columnar|
+      result = columnar.exec_query sql
+      assert_equal expected.columns, result.columns
+      assert_equal expected.rows, result.rows
+      assert_equal 'one', result.rows[0][3]
+      assert_nil result.rows[1][1]
+      assert_equal expected.to_a, result.to_a
+    end
+  end
+
+  def test_string_dedup_columns
+    Entry.delete_all
+    3.times { |i| Entry.create! :title => "dedup#{i}", :status => 'published' }
+
+    with_connection_config(:string_dedup_columns => [ 'status' ]) do |dedup|
+      rows = dedup.exec_query('SELECT title, status FROM entries ORDER BY id').rows
+      assert_equal %w( published published published ), rows.map(&:last)
+      assert_same rows[0][1], rows[2][1]
+      assert rows[0][1].frozen?
+      assert_not_same rows[0][0], rows[1][0] # title not de-duplicated
+
+      stats = dedup.raw_connection.string_dedup_stats
+      assert_equal [ 'status' ], stats.keys
+      assert_equal 2, stats['status'][:hits]
+      assert_equal 1, stats['status'][:misses]
+    end
+    assert_nil connection.raw_connection.string_dedup_stats
+  end
+
+  def test_stream_query
+    Entry.delete_all
+    user = User.create! :login => 'stream'
+    Entry.create! :title => 'stream1', :user_id => user.id
+    Entry.create! :title => 'stream2', :user_id => user.id
+
+    expected = Entry.connection.exec_query 'SELECT * FROM entries ORDER BY id'
+    result = Entry.connection.stream_query 'SELECT * FROM entries ORDER BY id'
+
+    assert_equal expected.columns, result.columns
+    assert_equal expected.to_a, result.to_a
+    assert result.closed?
+    assert_raise(RuntimeError) { result.each { } }
+
+    result = Entry.connection.stream_query 'SELECT * FROM entries ORDER BY id'
+    assert_equal expected.rows.first, result.each_row { |row| break row }
+    assert result.closed?
+  end
+
+  def test_stream_query_reads_rows_in_chunks
+    Entry.delete_all
+    user = User.create! :login => 'chunks'
+    5.times { |i| Entry.create! :title => "chunk#{i}", :user_id => user.id }
+
+    with_connection_config(:jdbc_fetch_size => 2) do |connection|
+      result = connection.stream_query 'SELECT * FROM entries ORDER BY id'
+      assert_equal 2, result.chunk_size
+      rows_read = []
+      result.each_row { rows_read << result.rows_read }
+      assert_equal [ 2, 2, 4, 4, 5 ], rows_read # not all (5) read on the first row
+      assert result.closed?
+    end
+  end
+
+  def test_exec_query_async
+    Entry.delete_all
+    user = User.create! :login => 'async'
+    Entry.create! :title => 'async1', :user_id => user.id
+    Entry.create! :title => 'async2', :user_id => user.id
+
+    expected = Entry.connection.exec_query 'SELECT * FROM entries ORDER BY id'
+    pending = Entry.connection.exec_query_async 'SELECT * FROM entries ORDER BY id'
+    result = pending.value
+
+    assert pending.done?
+    assert_equal expected.columns, result.columns
+    assert_equal expected.rows, result.rows
+
+    pending = Entry.connection.exec_query_async 'SELECT * FROM a_missing_table'
+    assert_raise(ActiveRecord::StatementInvalid) { pending.value }
+  end
+
+  def test_with_query_timeout
+    Entry.create! :title => 'timeout'
+
+    result = connection.with_query_timeout(5) do
+      assert_equal 5, connection.raw_connection.query_timeout
+      Entry.where(:title => 'timeout').first
+    end
+    assert_equal 'timeout', result.title
+    assert_equal 0, connection.cancel_running_query
+  end
+
+  def test_cancel_running_query
+    skip "#{connection.adapter_name} does not cancel a running join" if connection.adapter_name =~ /hsql|derby/i
+    raw_connection = connection.raw_connection
+    skip unless raw_connection.respond_to?(:connection_retry_stats)
+    100.times { |i| Entry.create! :title => "cancel#{i}" }
+    before = raw_connection.connection_retry_stats
+
+    conn = connection
+    canceller = Thread.new do
+      cancelled = 0
+      50.times { break if (cancelled = conn.cancel_running_query) > 0; sleep 0.1 }
+      cancelled
+    end
+    assert_raise(ActiveRecord::StatementInvalid) do
+      conn.with_query_timeout(10) do # in case the cancel does not make it
+        conn.exec_query 'SELECT COUNT(*) FROM entries a, entries b, entries c, entries d, entries e ' +
+          'WHERE a.id + b.id + c.id + d.id + e.id < 0'
+      end
+    end
+    assert_equal 1, canceller.value
+
+    stats = raw_connection.connection_retry_stats
+    assert_equal before[:retries], stats[:retries]
+    assert_equal before[:reconnects], stats[:reconnects]
+  end
+
+  def test_retryable
+    skip unless connection.respond_to?(:retryable)
+    before = connection.raw_connection.connection_retry_stats
+
+    assert_raise(ActiveRecord::StatementInvalid) do
+      connection.exec_update 'UPDATE a_missing_table SET title = NULL'
+    end
+    assert_equal 1, connection.retryable { Entry.create!(:title => 'retryable'); Entry.where(:title => 'retryable').count }
+
+    stats = connection.raw_connection.connection_retry_stats
+    assert_equal before[:not_idempotent] + 1, stats[:not_idempotent]
+  end
+
+  def test_with_jdbc_connection_not_retried
+    raw_connection = connection.raw_connection
+    skip unless raw_connection.respond_to?(:connection_retry_stats)
+    before = raw_connection.connection_retry_stats
+
+    assert_raise(ActiveRecord::JDBCError) do
+      raw_connection.with_jdbc_connection do |c|
+        begin
+          stmt = c.createStatement
+          stmt.execute "UPDATE a_missing_table SET title = NULL"
+        ensure
+          stmt.close rescue nil
+        end
+      end
+    end
+
+    stats = raw_connection.connection_retry_stats
+    assert_equal before[:not_idempotent] + 1, stats[:not_idempotent]
+  end if defined?(JRUBY_VERSION)
+
+  def test_stats
+    conn = connection.raw_connection
+    skip unless conn.respond_to?(:stats)
+    Entry.create! :title => 'timed'
+    conn.execute_query 'SELECT * FROM entries'
+
+    stats = conn.stats
+    assert stats[:query], "no query timings in #{stats.inspect}"
+    assert stats[:query][:execute][:count] >= 1
+    assert stats[:query][:execute][:max] >= stats[:query][:execute][:p50]
+  end
+
+  def test_query_stats
+    conn = connection.raw_connection
+    skip unless conn.respond_to?(:query_stats)
+    conn.reset_query_stats
+    conn.execute_query "SELECT * FROM entries WHERE id IN (1, 2, 3)"
+    conn.execute_query "SELECT  *  FROM entries WHERE id IN (4,5)"
+
+    stats = conn.query_stats.select { |stat| stat[:query] =~ /entries/ }
+    assert_equal 1, stats.size, "expected a single fingerprint in: #{stats.inspect}"
+    assert_equal 'select * from entries where id in (...)', stats.first[:query]
+    assert_equal 2, stats.first[:calls]
+  end
+
+  def test_statement_cache
+    skip unless connection.respond_to?(:statement_cache_stats) && connection.prepared_statements
+    e = Entry.create! :title => 'cached'
+
+    Entry.find(e.id) # prepares (and caches) the statement
+    before = connection.statement_cache_stats
+    2.times { assert_equal 'cached', Entry.find(e.id).title }
+    after = connection.statement_cache_stats
+    assert_equal before[:hits] + 2, after[:hits]
+
+    connection.clear_cache!
+    assert_equal 0, connection.statement_cache_stats[:size]
+  end
+
   def test_exec_query_empty_result; require 'set'
     Entry.delete_all; User.delete_all
 
@@ -945,6 +1172,20 @@ module SimpleTestMethods
     assert_not_nil Entry.find_by(title: 'inserted-title')
   end
 
+  def test_exec_prepared_batch
+    Entry.delete_all
+    counts = connection.exec_prepared_batch 'INSERT INTO entries (title, rating) VALUES (?, ?)', 'SQL',
+                                            [ [ 'batch1', 1 ], [ 'batch2', 2 ], [ 'batch3', 3 ] ]
+    assert_equal 3, counts.size
+    assert_equal 3, Entry.count
+
+    e = Entry.find_by(title: 'batch2')
+    counts = connection.exec_prepared_batch 'UPDATE entries SET title = ? WHERE id = ?', 'SQL',
+                                            [ [ 'updated', e.id ], [ 'missing', -1 ] ]
+    assert_equal [ 1, 0 ], counts unless counts.include?(-2) # Statement::SUCCESS_NO_INFO
+    assert_equal 'updated', e.reload.title
+  end
+
   def test_execute_update
     e = Entry.create! title: '42'
     Entry.create! title: '43'
@@ -1115,6 +1356,16 @@ module SimpleTestMethods
 
   private
 
+  def with_connection_config(config)
+    original = current_connection_config.dup
+    ActiveRecord::Base.remove_connection
+    ActiveRecord::Base.establish_connection original.merge(config)
+    yield ActiveRecord::Base.connection
+  ensure
+    ActiveRecord::Base.establish_connection original
+    @connection = nil
+  end
+
   def skip_exec_for_native_adapter
     unless defined? JRUBY_VERSION
       adapter = ActiveRecord::Base.connection.class.name